@@ -0,0 +1,348 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.bench;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.onstream.android.games.gameoflife.engine.CycleDetector;
+import de.onstream.android.games.gameoflife.engine.EngineType;
+import de.onstream.android.games.gameoflife.engine.LifeEngine;
+import de.onstream.android.games.gameoflife.engine.Patterns;
+import de.onstream.android.games.gameoflife.engine.Rule;
+import de.onstream.android.games.gameoflife.engine.Topology;
+
+/**
+ * Runs lots of random soups without any user interface, to collect
+ * statistics on how long they live and what they leave behind. Run it with
+ * "ant batch", options go into -Dbatch.args="...", see usage().
+ *
+ * Every run gets its own seed, derived from the run number and the -seed
+ * option, and nothing else goes into the soup. So the same options always
+ * give the same results, no matter how many threads share the work. The
+ * runs are spread over all cores, each thread with its own engine, and the
+ * results are written as CSV in the order of the runs while the others
+ * are still going.
+ *
+ * A run ends when the board is empty (EXTINCT), doesn't change anymore
+ * (STILL), repeats an earlier generation (CYCLE) or has reached the
+ * maximum number of generations (MAX).
+ */
+public class BatchRunner
+{
+    enum StopReason
+    {
+        EXTINCT, STILL, CYCLE, MAX
+    }
+
+    private int width = 64;
+    private int height = 64;
+    private Rule rule = Rule.CONWAY;
+    private Topology topology;
+    private EngineType engineType = EngineType.BITBOARD;
+    private double density = 0.5;
+    private long seed = 1;
+    private int runs = 1000;
+    private long maxGenerations = 10000;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private String csvFile;
+
+    //finished runs waiting to be written, a worker can't get further ahead of the writer than this
+    private Result[] window;
+    private int written = 0;
+    private final AtomicInteger nextRun = new AtomicInteger();
+    private volatile Throwable failure;
+
+    public static void main(String[] args) throws Exception {
+        BatchRunner b = new BatchRunner();
+        if (!b.parse(args))
+        {
+            usage();
+            System.exit(1);
+        }
+        b.run();
+    }
+
+    private static void usage() {
+        System.err.println("usage: BatchRunner [options]");
+        System.err.println("  -size 64x64          board size (default: 64x64)");
+        System.err.println("  -rule B3/S23         rule to run (default: B3/S23)");
+        System.err.println("  -topology TORUS      BOUNDED, TORUS or KLEIN_BOTTLE (default: the engine's)");
+        System.err.println("  -engine BITBOARD     engine to use (default: BITBOARD)");
+        System.err.println("  -density 0.5         chance of a cell to be alive at the start (default: 0.5)");
+        System.err.println("  -seed n              seed the seeds of all runs are derived from (default: 1)");
+        System.err.println("  -runs n              number of soups (default: 1000)");
+        System.err.println("  -max n               generations after which a run stops (default: 10000)");
+        System.err.println("  -threads n           worker threads (default: one per core)");
+        System.err.println("  -csv file            where the results go (default: standard output)");
+    }
+
+    private boolean parse(String[] args) {
+        try {
+            for (int i = 0; i < args.length; i++)
+            {
+                String a = args[i];
+                if (i + 1 >= args.length) return false;
+                String v = args[++i];
+                if ("-size".equals(a))
+                {
+                    int x = v.indexOf('x');
+                    if (x < 0) throw new IllegalArgumentException("bad board size: " + v);
+                    width = Integer.parseInt(v.substring(0, x));
+                    height = Integer.parseInt(v.substring(x + 1));
+                }
+                else if ("-rule".equals(a))
+                {
+                    rule = Rule.parse(v);
+                }
+                else if ("-topology".equals(a))
+                {
+                    topology = Topology.valueOf(v.trim().toUpperCase(Locale.US));
+                }
+                else if ("-engine".equals(a))
+                {
+                    engineType = EngineType.valueOf(v.trim().toUpperCase(Locale.US));
+                }
+                else if ("-density".equals(a))
+                {
+                    density = Double.parseDouble(v);
+                }
+                else if ("-seed".equals(a))
+                {
+                    seed = Long.parseLong(v);
+                }
+                else if ("-runs".equals(a))
+                {
+                    runs = Integer.parseInt(v);
+                }
+                else if ("-max".equals(a))
+                {
+                    maxGenerations = Long.parseLong(v);
+                }
+                else if ("-threads".equals(a))
+                {
+                    threads = Integer.parseInt(v);
+                }
+                else if ("-csv".equals(a))
+                {
+                    csvFile = v;
+                }
+                else
+                {
+                    return false;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return false;
+        }
+        if (width < 1 || height < 1 || runs < 0 || maxGenerations < 0 || threads < 1) return false;
+        if (density < 0 || density > 1) return false;
+        //fail now and not in every worker
+        try {
+            configure(engineType.create(1, 1)).dispose();
+        } catch (IllegalArgumentException e) {
+            System.err.println(engineType + ": " + e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    private LifeEngine configure(LifeEngine engine) {
+        engine.setTrackChanges(true); //for the cycle detector
+        engine.setRule(rule);
+        if (topology != null)
+            engine.setTopology(topology);
+        return engine;
+    }
+
+    private static final class Result
+    {
+        int run;
+        long seed;
+        long generation;
+        StopReason reason;
+        long population;
+        long period;
+    }
+
+    private void run() throws Exception {
+        PrintWriter out = csvFile != null
+                ? new PrintWriter(new FileWriter(csvFile))
+                : new PrintWriter(new OutputStreamWriter(System.out));
+        long start = System.nanoTime();
+        long[] reasons = new long[StopReason.values().length];
+        long lifespan = 0;
+        try {
+            out.println("run,seed,end_generation,stop_reason,population,period");
+            window = new Result[threads * 64];
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++)
+            {
+                workers[t] = new Thread("batch-" + t) {
+                    @Override
+                    public void run() {
+                        try {
+                            work();
+                        } catch (Throwable e) {
+                            failure = e;
+                            synchronized (BatchRunner.this) {
+                                BatchRunner.this.notifyAll();
+                            }
+                        }
+                    }
+                };
+                workers[t].setDaemon(true);
+                workers[t].start();
+            }
+
+            for (int run = 0; run < runs; run++)
+            {
+                Result r = take(run);
+                out.println(String.format(Locale.US, "%d,%d,%d,%s,%d,%d",
+                        r.run, r.seed, r.generation, r.reason, r.population, r.period));
+                reasons[r.reason.ordinal()]++;
+                lifespan += r.generation;
+            }
+        } finally {
+            out.close();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format(Locale.US, "%d runs of %dx%d %s in %.1fs, mean end generation %.1f",
+                runs, width, height, rule, seconds, runs == 0 ? 0.0 : (double) lifespan / runs));
+        for (StopReason reason : StopReason.values())
+            summary.append(", ").append(reason).append(' ').append(reasons[reason.ordinal()]);
+        System.err.println(summary);
+    }
+
+    //waits until the given run is finished and makes room for the next one
+    private synchronized Result take(int run) throws Exception {
+        int slot = run % window.length;
+        while (window[slot] == null || window[slot].run != run)
+        {
+            if (failure != null) throw new Exception("worker failed", failure);
+            wait();
+        }
+        Result r = window[slot];
+        window[slot] = null;
+        written = run + 1;
+        notifyAll();
+        return r;
+    }
+
+    private synchronized void put(Result r) {
+        window[r.run % window.length] = r;
+        notifyAll();
+    }
+
+    //a worker must not overwrite a slot the writer hasn't taken yet
+    private synchronized void awaitRoom(int run) throws InterruptedException {
+        while (run - written >= window.length)
+            wait();
+    }
+
+    private void work() throws InterruptedException {
+        LifeEngine engine = configure(engineType.create(width, height));
+        CycleDetector cycles = new CycleDetector();
+        try {
+            int run;
+            while ((run = nextRun.getAndIncrement()) < runs)
+            {
+                awaitRoom(run);
+                Result r = new Result();
+                r.run = run;
+                r.seed = runSeed(seed, run);
+                simulate(engine, cycles, r);
+                put(r);
+            }
+        } finally {
+            engine.dispose();
+        }
+    }
+
+    private void simulate(LifeEngine engine, CycleDetector cycles, Result r) {
+        engine.clear();
+        Patterns.randomSoup(engine, density, new Random(r.seed));
+        engine.getChanges().clear();
+        cycles.reset();
+        cycles.update(engine, engine.getChanges());
+
+        r.reason = StopReason.MAX;
+        r.period = 0;
+        while (engine.getGeneration() < maxGenerations)
+        {
+            if (engine.getPopulation() == 0)
+            {
+                r.reason = StopReason.EXTINCT;
+                break;
+            }
+            if (engine.step(1) == 0)
+            {
+                r.reason = StopReason.STILL;
+                r.period = 1;
+                break;
+            }
+            boolean cycle = cycles.update(engine, engine.getChanges());
+            engine.getChanges().clear();
+            if (cycle)
+            {
+                r.reason = StopReason.CYCLE;
+                r.period = cycles.getPeriod();
+                break;
+            }
+        }
+        if (r.reason == StopReason.MAX && engine.getPopulation() == 0)
+            r.reason = StopReason.EXTINCT; //died in the very last generation
+        r.generation = engine.getGeneration();
+        r.population = engine.getPopulation();
+    }
+
+    //splitmix64 of the run number, neighbouring runs get unrelated soups
+    static long runSeed(long seed, int run) {
+        long z = seed + (run + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
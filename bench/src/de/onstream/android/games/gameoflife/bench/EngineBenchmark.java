@@ -0,0 +1,482 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.bench;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import de.onstream.android.games.gameoflife.engine.BoardSnapshot;
+import de.onstream.android.games.gameoflife.engine.EngineType;
+import de.onstream.android.games.gameoflife.engine.LifeEngine;
+import de.onstream.android.games.gameoflife.engine.Patterns;
+import de.onstream.android.games.gameoflife.engine.Rule;
+import de.onstream.android.games.gameoflife.engine.SnapshotBuffer;
+
+/**
+ * Measures the engines on a desktop JVM. Run it with "ant bench", extra
+ * options go into -Dbench.args="...", see usage().
+ *
+ * Every engine/board/pattern combination gets a number of warmup rounds
+ * followed by the measured rounds. A round steps the board one generation
+ * at a time until its time is up, and takes a snapshot for the view after
+ * every generation just like the simulation thread does. Should a pattern
+ * settle down during a round (the glider crashing into the border, a soup
+ * dying out), the board is set up again outside of the measured time.
+ */
+public class EngineBenchmark
+{
+    enum Pattern
+    {
+        GLIDER, RPENTOMINO, GOSPER, SOUP
+    }
+
+    private static final long SOUP_SEED = 42L;
+
+    //rounds per combination and how long each one runs
+    private int warmup = 3;
+    private int iterations = 5;
+    private long roundMillis = 1000;
+
+    private final List<EngineType> engines = new ArrayList<EngineType>();
+    private final List<int[]> sizes = new ArrayList<int[]>();
+    private final List<Pattern> patterns = new ArrayList<Pattern>();
+    private Rule rule = Rule.CONWAY;
+    private boolean all;
+    private int verify = 0; //generations to compare with the array engine first
+    private String csvFile;
+
+    //null if the vm can't count the bytes a thread allocates
+    private com.sun.management.ThreadMXBean threads;
+
+    public static void main(String[] args) throws IOException {
+        EngineBenchmark b = new EngineBenchmark();
+        if (!b.parse(args))
+        {
+            usage();
+            System.exit(1);
+        }
+        b.run();
+    }
+
+    private static void usage() {
+        System.err.println("usage: EngineBenchmark [options]");
+        System.err.println("  -engines ARRAY,BITBOARD,...   engines to measure (default: all)");
+        System.err.println("  -sizes 16x20,1024x1024,...    board sizes (default: 16x20 up to 8192x8192)");
+        System.err.println("  -patterns glider,soup,...     glider, rpentomino, gosper, soup (default: all)");
+        System.err.println("  -warmup n                     warmup rounds (default: 3)");
+        System.err.println("  -iterations n                 measured rounds (default: 5)");
+        System.err.println("  -time ms                      length of a round (default: 1000)");
+        System.err.println("  -rule B36/S23                 rule to run (default: B3/S23)");
+        System.err.println("  -csv file                     also write the results as csv");
+        System.err.println("  -all                          do not skip the very slow combinations");
+        System.err.println("  -verify n                     compare n generations cell by cell with the array engine first,");
+        System.err.println("                                and step(n) of a few oscillators for bigger n");
+    }
+
+    private boolean parse(String[] args) {
+        try {
+            for (int i = 0; i < args.length; i++)
+            {
+                String a = args[i];
+                if ("-all".equals(a))
+                {
+                    all = true;
+                    continue;
+                }
+                if (i + 1 >= args.length) return false;
+                String v = args[++i];
+                if ("-engines".equals(a))
+                {
+                    for (String s : v.split(","))
+                        engines.add(EngineType.valueOf(s.trim().toUpperCase(Locale.US)));
+                }
+                else if ("-sizes".equals(a))
+                {
+                    for (String s : v.split(","))
+                        sizes.add(parseSize(s.trim()));
+                }
+                else if ("-patterns".equals(a))
+                {
+                    for (String s : v.split(","))
+                        patterns.add(Pattern.valueOf(s.trim().toUpperCase(Locale.US)));
+                }
+                else if ("-warmup".equals(a))
+                {
+                    warmup = Integer.parseInt(v);
+                }
+                else if ("-iterations".equals(a))
+                {
+                    iterations = Integer.parseInt(v);
+                }
+                else if ("-time".equals(a))
+                {
+                    roundMillis = Long.parseLong(v);
+                }
+                else if ("-rule".equals(a))
+                {
+                    rule = Rule.parse(v);
+                }
+                else if ("-csv".equals(a))
+                {
+                    csvFile = v;
+                }
+                else if ("-verify".equals(a))
+                {
+                    verify = Integer.parseInt(v);
+                }
+                else
+                {
+                    return false;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return false;
+        }
+        if (warmup < 0 || iterations < 1 || roundMillis < 1 || verify < 0) return false;
+
+        if (engines.isEmpty())
+            for (EngineType t : EngineType.values())
+                engines.add(t);
+        if (sizes.isEmpty())
+        {
+            sizes.add(new int[] {16, 20});
+            sizes.add(new int[] {256, 256});
+            sizes.add(new int[] {1024, 1024});
+            sizes.add(new int[] {4096, 4096});
+            sizes.add(new int[] {8192, 8192});
+        }
+        if (patterns.isEmpty())
+            for (Pattern p : Pattern.values())
+                patterns.add(p);
+        return true;
+    }
+
+    private static int[] parseSize(String s) {
+        int x = s.indexOf('x');
+        if (x < 0) throw new IllegalArgumentException("bad board size: " + s);
+        int w = Integer.parseInt(s.substring(0, x));
+        int h = Integer.parseInt(s.substring(x + 1));
+        if (w < 1 || h < 1) throw new IllegalArgumentException("bad board size: " + s);
+        return new int[] {w, h};
+    }
+
+    //the plain array engine needs seconds per generation on the big boards
+    //and hashlife has nothing to memoize in a big random soup, both would
+    //only make the run take forever
+    private boolean skip(EngineType type, int width, int height, Pattern pattern) {
+        if (pattern == Pattern.GOSPER
+                && (width < Patterns.width(Patterns.GOSPER_GLIDER_GUN)
+                    || height < Patterns.height(Patterns.GOSPER_GLIDER_GUN)))
+            return true; //the gun doesn't fit
+        long cells = (long) width * height;
+        if ((type == EngineType.HASHLIFE || type == EngineType.CHUNKED) && rule.isBorn(0))
+            return true; //can't do it at all
+        if (all) return false;
+        if (type == EngineType.ARRAY && cells > 4096L * 4096L) return true;
+        if (type == EngineType.HASHLIFE && pattern == Pattern.SOUP && cells > 1024L * 1024L) return true;
+        return false;
+    }
+
+    private void run() throws IOException {
+        //only the allocations of the calling thread are counted, the workers
+        //of the parallel engine allocate nothing per generation anyway
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (mx instanceof com.sun.management.ThreadMXBean)
+        {
+            threads = (com.sun.management.ThreadMXBean) mx;
+            if (!threads.isThreadAllocatedMemorySupported())
+            {
+                threads = null;
+            }
+            else
+            {
+                threads.setThreadAllocatedMemoryEnabled(true);
+            }
+        }
+
+        PrintWriter csv = null;
+        if (csvFile != null)
+        {
+            csv = new PrintWriter(new FileWriter(csvFile));
+            csv.println("engine,width,height,pattern,generations,gens_per_sec,gens_per_sec_error,ns_per_cell,alloc_bytes_per_gen");
+        }
+
+        System.out.println(String.format(Locale.US, "%-18s %11s %-10s %10s %19s %12s %14s",
+                "engine", "board", "pattern", "gens", "gens/s", "ns/cell", "alloc B/gen"));
+        try {
+            for (EngineType type : engines)
+            {
+                if (verify > 0) verifyJumps(type);
+                for (int[] size : sizes)
+                {
+                    for (Pattern pattern : patterns)
+                    {
+                        if (skip(type, size[0], size[1], pattern)) continue;
+                        if (verify > 0) verify(type, size[0], size[1], pattern);
+                        measure(type, size[0], size[1], pattern, csv);
+                    }
+                }
+            }
+        } finally {
+            if (csv != null) csv.close();
+        }
+    }
+
+    private void measure(EngineType type, int width, int height, Pattern pattern, PrintWriter csv) {
+        LifeEngine engine = type.create(width, height);
+        try {
+            engine.setTrackChanges(true);
+            engine.setRule(rule);
+            SnapshotBuffer snapshots = new SnapshotBuffer();
+            Round r = new Round();
+            for (int i = 0; i < warmup; i++)
+                round(engine, snapshots, pattern, r);
+
+            double[] rates = new double[iterations];
+            long generations = 0;
+            long nanos = 0;
+            long allocated = 0;
+            for (int i = 0; i < iterations; i++)
+            {
+                round(engine, snapshots, pattern, r);
+                rates[i] = r.generations * 1e9 / r.nanos;
+                generations += r.generations;
+                nanos += r.nanos;
+                allocated += r.allocated;
+            }
+
+            double mean = 0;
+            for (double v : rates) mean += v;
+            mean /= iterations;
+            double error = 0;
+            for (double v : rates) error += (v - mean) * (v - mean);
+            error = iterations > 1 ? Math.sqrt(error / (iterations - 1)) : 0;
+            double nsPerCell = (double) nanos / generations / ((double) width * height);
+            String alloc = threads == null ? "n/a"
+                         : String.format(Locale.US, "%.1f", (double) allocated / generations);
+
+            System.out.println(String.format(Locale.US, "%-18s %11s %-10s %10d %9.1f +-%-7.1f %12.3f %14s",
+                    type, width + "x" + height, pattern.name().toLowerCase(Locale.US),
+                    generations, mean, error, nsPerCell, alloc));
+            if (csv != null)
+            {
+                csv.println(String.format(Locale.US, "%s,%d,%d,%s,%d,%.3f,%.3f,%.5f,%s",
+                        type, width, height, pattern.name().toLowerCase(Locale.US),
+                        generations, mean, error, nsPerCell, threads == null ? "" : alloc));
+                csv.flush();
+            }
+        } finally {
+            engine.dispose();
+        }
+    }
+
+    /**
+     * Runs the engine and the array engine, the reference all engines have
+     * to agree with, side by side and compares every cell after every
+     * generation. A benchmark of a wrong engine isn't worth anything.
+     */
+    private void verify(EngineType type, int width, int height, Pattern pattern) {
+        LifeEngine engine = type.create(width, height);
+        LifeEngine reference = EngineType.ARRAY.create(width, height);
+        try {
+            //hashlife and the chunks have no border, they live in a different universe
+            if (engine.getTopology() != reference.getTopology()) return;
+            engine.setRule(rule);
+            reference.setRule(rule);
+            setup(engine, pattern);
+            setup(reference, pattern);
+            BoardSnapshot expected = new BoardSnapshot();
+            BoardSnapshot actual = new BoardSnapshot();
+            for (int g = 1; g <= verify; g++)
+            {
+                int steps = reference.step(1);
+                engine.step(1);
+                reference.snapshot(expected);
+                engine.snapshot(actual);
+                for (int y = 0; y < height; y++)
+                    for (int x = 0; x < width; x++)
+                        if (expected.get(x, y) != actual.get(x, y))
+                            throw new IllegalStateException(type + " " + width + "x" + height + " " + pattern
+                                    + ": cell " + x + "/" + y + " differs in generation " + g);
+                if (steps == 0) break; //stuck, nothing more to compare
+            }
+        } finally {
+            engine.dispose();
+            reference.dispose();
+        }
+    }
+
+    //how many generations verifyJumps() asks for in one step() call
+    private static final int[] JUMPS = {1, 2, 3, 4, 5, 7, 8, 16, 31, 64, 100};
+
+    //turns into a block
+    private static final int[][] FREEZES_AFTER_ONE = {{0, 0}, {1, 0}, {0, 1}};
+
+    //turns into a beehive
+    private static final int[][] FREEZES_AFTER_TWO = {{0, 0}, {1, 0}, {2, 0}, {3, 0}};
+
+    /**
+     * Compares step(n) for bigger n with the array engine, one generation
+     * at a time. HashLife takes those in power of two jumps, after which an
+     * oscillator whose period divides the jump is back where it started,
+     * which must neither stop it nor throw its generation count off. The
+     * still life next to them has to keep the board from being stuck. The
+     * last board freezes a few generations in, in the middle of a jump,
+     * which must only count the generations up to there.
+     */
+    private void verifyJumps(EngineType type) {
+        for (int n : JUMPS)
+        {
+            for (int still = 0; still < 3; still++)
+            {
+                LifeEngine engine = type.create(64, 64);
+                LifeEngine reference = EngineType.ARRAY.create(64, 64);
+                try {
+                    engine.setRule(rule);
+                    reference.setRule(rule);
+                    for (LifeEngine e : new LifeEngine[] {engine, reference})
+                    {
+                        Patterns.place(e, Patterns.BLOCK, 50, 50);
+                        if (still == 0)
+                        {
+                            Patterns.place(e, Patterns.BLINKER, 10, 10);
+                            Patterns.place(e, Patterns.TOAD, 30, 30);
+                        }
+                        else if (still == 2)
+                        {
+                            Patterns.place(e, FREEZES_AFTER_ONE, 10, 10);
+                            Patterns.place(e, FREEZES_AFTER_TWO, 30, 30);
+                        }
+                    }
+                    int expectedSteps = 0;
+                    for (int g = 0; g < n && reference.step(1) > 0; g++)
+                        expectedSteps++;
+                    int steps = engine.step(n);
+                    String what = type + " step(" + n + ")" + (still == 1 ? " still life" : still == 2 ? " freezing" : "");
+                    if (steps != expectedSteps || engine.getGeneration() != reference.getGeneration())
+                        throw new IllegalStateException(what + ": " + steps + " steps to generation "
+                                + engine.getGeneration() + ", expected " + expectedSteps
+                                + " to generation " + reference.getGeneration());
+                    for (int y = 0; y < 64; y++)
+                        for (int x = 0; x < 64; x++)
+                            if (engine.getCell(x, y) != reference.getCell(x, y))
+                                throw new IllegalStateException(what + ": cell " + x + "/" + y + " differs");
+                } finally {
+                    engine.dispose();
+                    reference.dispose();
+                }
+            }
+        }
+    }
+
+    private static final class Round
+    {
+        long generations;
+        long nanos;
+        long allocated;
+    }
+
+    //one round: step and snapshot until the time is up, the setup of the
+    //board is not part of the measurement
+    private void round(LifeEngine engine, SnapshotBuffer snapshots, Pattern pattern, Round r) {
+        long thread = Thread.currentThread().getId();
+        long budget = roundMillis * 1000000L;
+        r.generations = 0;
+        r.nanos = 0;
+        r.allocated = 0;
+
+        setup(engine, pattern);
+        while (r.nanos < budget)
+        {
+            long bytes = allocatedBytes(thread);
+            long start = System.nanoTime();
+            int changed = engine.step(1);
+            if (changed > 0)
+            {
+                BoardSnapshot back = snapshots.getBack();
+                engine.snapshot(back);
+                back.getChanges().clear();
+                back.getChanges().addAll(engine.getChanges());
+                engine.getChanges().clear();
+                snapshots.publish();
+                snapshots.acquire();
+            }
+            r.nanos += System.nanoTime() - start;
+            r.allocated += allocatedBytes(thread) - bytes;
+            if (changed > 0)
+            {
+                r.generations++;
+            }
+            else
+            {
+                setup(engine, pattern);
+            }
+        }
+        //a single generation might take longer than the whole round
+        if (r.generations == 0) r.generations = 1;
+    }
+
+    private static void setup(LifeEngine engine, Pattern pattern) {
+        engine.clear();
+        switch (pattern) {
+            case GLIDER:
+                Patterns.center(engine, Patterns.GLIDER);
+                break;
+            case RPENTOMINO:
+                Patterns.center(engine, Patterns.R_PENTOMINO);
+                break;
+            case GOSPER:
+                Patterns.center(engine, Patterns.GOSPER_GLIDER_GUN);
+                break;
+            case SOUP:
+                Patterns.randomSoup(engine, 0.5, new Random(SOUP_SEED));
+                break;
+        }
+        engine.getChanges().clear();
+    }
+
+    private long allocatedBytes(long thread) {
+        return threads == null ? 0 : threads.getThreadAllocatedBytes(thread);
+    }
+}
@@ -0,0 +1,223 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+
+import de.onstream.android.games.gameoflife.engine.BoardSnapshot;
+import de.onstream.android.games.gameoflife.engine.CycleDetector;
+import de.onstream.android.games.gameoflife.engine.EngineType;
+import de.onstream.android.games.gameoflife.engine.LifeEngine;
+import de.onstream.android.games.gameoflife.engine.PatternFormat;
+import de.onstream.android.games.gameoflife.engine.PatternReader;
+import de.onstream.android.games.gameoflife.engine.PatternWriter;
+import de.onstream.android.games.gameoflife.engine.Patterns;
+import de.onstream.android.games.gameoflife.engine.Rule;
+import de.onstream.android.games.gameoflife.engine.SnapshotFile;
+import de.onstream.android.games.gameoflife.engine.Topology;
+
+/**
+ * Checks the parts of the engine package that are easy to get subtly
+ * wrong, on the desktop JVM, without the Android platform. Run it with
+ * "ant check". Every check throws an IllegalStateException on the first
+ * thing that is off, so the build fails.
+ */
+public class SelfCheck
+{
+    public static void main(String[] args) throws IOException {
+        patternRoundTrip();
+        rleGollyHeader();
+        cycleIndexCollisions();
+        noCyclesOnThePlane();
+        snapshotFileRoundTrip();
+        System.out.println("all checks passed");
+    }
+
+    /**
+     * Saves boards in every format and loads them back the way GameView
+     * does, at the reader's origin for a board of the same size. Nothing
+     * may move, get lost or be added.
+     */
+    static void patternRoundTrip() throws IOException {
+        int[][] sizes = {{16, 20}, {33, 17}, {64, 64}, {1, 1}};
+        Random random = new Random(7);
+        for (PatternFormat format : PatternFormat.values())
+        {
+            for (int[] size : sizes)
+            {
+                LifeEngine saved = EngineType.BITBOARD.create(size[0], size[1]);
+                saved.setRule(Rule.parse("B36/S23"));
+                Patterns.randomSoup(saved, 0.3, random);
+                //the corners are where a wrong origin shows first
+                saved.setCell(0, 0, true);
+                saved.setCell(size[0] - 1, size[1] - 1, true);
+
+                StringWriter out = new StringWriter();
+                PatternWriter.write(out, saved, format);
+                PatternReader r = new PatternReader(new StringReader(out.toString()));
+                r.readHeader();
+                LifeEngine loaded = EngineType.BITBOARD.create(size[0], size[1]);
+                r.readCells(loaded, r.originX(size[0]), r.originY(size[1]));
+                compare(format + " " + size[0] + "x" + size[1], saved, loaded);
+            }
+        }
+    }
+
+    /**
+     * Golly writes the bounded grid behind the rule, with a comma of its
+     * own. The header must still parse and the rule must come out without
+     * the grid.
+     */
+    static void rleGollyHeader() throws IOException {
+        String glider = "x = 3, y = 3, rule = B3/S23:T64,64\nbob$2bo$3o!\n";
+        PatternReader r = new PatternReader(new StringReader(glider));
+        r.readHeader();
+        if (!"B3/S23".equals(r.getRule()))
+            throw new IllegalStateException("Golly header: rule " + r.getRule());
+        Rule.parse(r.getRule());
+        LifeEngine loaded = EngineType.ARRAY.create(3, 3);
+        r.readCells(loaded, r.originX(3), r.originY(3));
+        LifeEngine expected = EngineType.ARRAY.create(3, 3);
+        expected.setCell(1, 0, true);
+        expected.setCell(2, 1, true);
+        expected.setCell(0, 2, true);
+        expected.setCell(1, 2, true);
+        expected.setCell(2, 2, true);
+        compare("Golly header", expected, loaded);
+    }
+
+    /**
+     * A blinker with a tiny history, under many seeds. Now and then both of
+     * its states land on the same index slot, which must not keep the
+     * detector from finding the period two generations in.
+     */
+    static void cycleIndexCollisions() {
+        LifeEngine engine = EngineType.ARRAY.create(8, 8);
+        engine.setTrackChanges(true);
+        for (int seed = 0; seed < 1000; seed++)
+        {
+            engine.clear();
+            Patterns.place(engine, Patterns.BLINKER, 2, 3);
+            engine.getChanges().clear();
+            CycleDetector cycles = new CycleDetector(3, seed);
+            cycles.update(engine, engine.getChanges());
+            for (int g = 0; g < 2; g++)
+            {
+                engine.step(1);
+                cycles.update(engine, engine.getChanges());
+                engine.getChanges().clear();
+            }
+            if (cycles.getPeriod() != 2)
+                throw new IllegalStateException("cycle seed " + seed + ": period " + cycles.getPeriod());
+        }
+    }
+
+    /**
+     * A glider that leaves the window of an endless universe leaves an
+     * empty window behind, which is not a still life.
+     */
+    static void noCyclesOnThePlane() {
+        for (EngineType type : new EngineType[] {EngineType.HASHLIFE, EngineType.CHUNKED})
+        {
+            LifeEngine engine = type.create(8, 8);
+            try {
+                engine.setTrackChanges(true);
+                Patterns.place(engine, Patterns.GLIDER, 3, 3);
+                engine.getChanges().clear();
+                CycleDetector cycles = new CycleDetector();
+                for (int g = 0; g < 64; g++)
+                {
+                    engine.step(1);
+                    if (cycles.update(engine, engine.getChanges()))
+                        throw new IllegalStateException(type + ": cycle of period " + cycles.getPeriod()
+                                + " in generation " + engine.getGeneration());
+                    engine.getChanges().clear();
+                }
+            } finally {
+                engine.dispose();
+            }
+        }
+    }
+
+    /**
+     * A saved state has to come back with its rule and topology, or it
+     * continues differently than it would have.
+     */
+    static void snapshotFileRoundTrip() throws IOException {
+        LifeEngine saved = EngineType.BITBOARD.create(70, 30);
+        saved.setRule(Rule.parse("B36/S23"));
+        saved.setTopology(Topology.KLEIN_BOTTLE);
+        Patterns.randomSoup(saved, 0.3, new Random(11));
+        saved.step(5);
+        BoardSnapshot s = new BoardSnapshot();
+        saved.snapshot(s);
+
+        File file = File.createTempFile("selfcheck", ".state");
+        try {
+            SnapshotFile.write(file, s);
+            BoardSnapshot read = new BoardSnapshot();
+            SnapshotFile.read(file, read);
+            if (!saved.getRule().equals(read.getRule()) || read.getTopology() != Topology.KLEIN_BOTTLE)
+                throw new IllegalStateException("snapshot file: " + read.getRule() + " " + read.getTopology());
+            LifeEngine loaded = EngineType.BITBOARD.create(70, 30);
+            loaded.setRule(read.getRule());
+            loaded.setTopology(read.getTopology());
+            loaded.restore(read);
+            if (loaded.getGeneration() != saved.getGeneration())
+                throw new IllegalStateException("snapshot file: generation " + loaded.getGeneration());
+            saved.step(20);
+            loaded.step(20);
+            compare("snapshot file", saved, loaded);
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void compare(String what, LifeEngine expected, LifeEngine actual) {
+        for (int y = 0; y < expected.getHeight(); y++)
+            for (int x = 0; x < expected.getWidth(); x++)
+                if (expected.getCell(x, y) != actual.getCell(x, y))
+                    throw new IllegalStateException(what + ": cell " + x + "/" + y + " differs");
+        if (expected.getPopulation() != actual.getPopulation())
+            throw new IllegalStateException(what + ": population " + actual.getPopulation()
+                    + ", expected " + expected.getPopulation());
+    }
+}
@@ -0,0 +1,215 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife;
+
+import java.lang.reflect.Method;
+
+import android.view.MotionEvent;
+
+/**
+ * Turns the touch events of GameView into taps, pans and pinch zooms.
+ *
+ * A finger that goes down and up without moving much is a tap, one that
+ * moves further drags the board along, or draws a stroke while painting.
+ * Two fingers zoom around the point between them and pan with it.
+ *
+ * Multitouch came with Android 2.0, we still run on 1.5. So the methods to
+ * get at the second finger are looked up at runtime, without them there is
+ * just no pinch zoom.
+ */
+class BoardGestures
+{
+    //how far a finger may move before a tap becomes a drag, in pixels
+    private static final float TOUCH_SLOP = 8;
+
+    //MotionEvent constants of Android 2.0
+    private static final int ACTION_MASK = 0xff;
+    private static final int ACTION_POINTER_DOWN = 5;
+    private static final int ACTION_POINTER_UP   = 6;
+
+    private static final Method getPointerCount;
+    private static final Method getXAt;
+    private static final Method getYAt;
+    //the arguments for them, so a touch event doesn't allocate any
+    private static final Object[] NO_ARGS = new Object[0];
+    private static final Object[] SECOND_POINTER = { Integer.valueOf(1) };
+    static {
+        Method count = null;
+        Method x = null;
+        Method y = null;
+        try {
+            count = MotionEvent.class.getMethod("getPointerCount");
+            x = MotionEvent.class.getMethod("getX", Integer.TYPE);
+            y = MotionEvent.class.getMethod("getY", Integer.TYPE);
+        } catch (NoSuchMethodException e) {
+            count = null; //single touch only
+        }
+        getPointerCount = count;
+        getXAt = x;
+        getYAt = y;
+    }
+
+    interface Listener {
+        void onTap(float x, float y);
+        //painting only, a finger started a stroke at x,y and moved on to x,y
+        void onStrokeStart(float x, float y);
+        void onStroke(float x, float y);
+        //the viewport was zoomed or panned
+        void onViewportChanged();
+    }
+
+    private final Viewport viewport;
+    private final Listener listener;
+
+    private float downX;
+    private float downY;
+    private float lastX;
+    private float lastY;
+    private boolean painting = false;
+    private boolean dragging = false;
+    private boolean pinching = false;
+    private boolean pinched  = false; //no tap and no drag until all fingers are up
+    private float spacing; //between the two fingers of a pinch
+
+    private final float[] pointer = new float[4]; //x and y of the first two fingers
+
+    BoardGestures(Viewport viewport, Listener listener) {
+        this.viewport = viewport;
+        this.listener = listener;
+    }
+
+    boolean isPainting() {
+        return painting;
+    }
+
+    void setPainting(boolean painting) {
+        this.painting = painting;
+    }
+
+    void onTouchEvent(MotionEvent event) {
+        float x = event.getX();
+        float y = event.getY();
+        switch (event.getAction() & ACTION_MASK) {
+            case MotionEvent.ACTION_DOWN:
+                downX = lastX = x;
+                downY = lastY = y;
+                dragging = pinching = pinched = false;
+                break;
+            case ACTION_POINTER_DOWN:
+                if (getPointers(event))
+                {
+                    pinching = pinched = true;
+                    lastX = (pointer[0] + pointer[2]) / 2;
+                    lastY = (pointer[1] + pointer[3]) / 2;
+                    spacing = spacing();
+                }
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (pinching)
+                    pinch(event);
+                else if (!pinched)
+                    drag(x, y);
+                break;
+            case ACTION_POINTER_UP:
+                pinching = false;
+                break;
+            case MotionEvent.ACTION_UP:
+                if (!dragging && !pinched)
+                    listener.onTap(x, y);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void drag(float x, float y) {
+        if (!dragging && Math.abs(x - downX) <= TOUCH_SLOP && Math.abs(y - downY) <= TOUCH_SLOP)
+            return;
+        if (painting)
+        {
+            if (!dragging)
+                listener.onStrokeStart(downX, downY);
+            listener.onStroke(x, y);
+        }
+        else if (viewport.pan(x - lastX, y - lastY))
+            listener.onViewportChanged();
+        dragging = true;
+        lastX = x;
+        lastY = y;
+    }
+
+    private void pinch(MotionEvent event) {
+        if (!getPointers(event)) return;
+        float x = (pointer[0] + pointer[2]) / 2;
+        float y = (pointer[1] + pointer[3]) / 2;
+        float s = spacing();
+        boolean changed = viewport.pan(x - lastX, y - lastY);
+        if (spacing > 0 && s > 0)
+            changed |= viewport.zoomTo(viewport.getZoom() * s / spacing, x, y);
+        lastX = x;
+        lastY = y;
+        spacing = s;
+        if (changed)
+            listener.onViewportChanged();
+    }
+
+    private float spacing() {
+        float dx = pointer[2] - pointer[0];
+        float dy = pointer[3] - pointer[1];
+        return (float)Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Puts the first two fingers into pointer, false if there aren't two.
+     * The first one is what getX() and getY() return anyway, only the second
+     * one needs reflection. Its coordinates still come back boxed, that's
+     * the price for running on 1.5, but only while two fingers are down.
+     */
+    private boolean getPointers(MotionEvent event) {
+        if (getPointerCount == null) return false;
+        try {
+            if (((Integer)getPointerCount.invoke(event, NO_ARGS)).intValue() < 2) return false;
+            pointer[0] = event.getX();
+            pointer[1] = event.getY();
+            pointer[2] = ((Float)getXAt.invoke(event, SECOND_POINTER)).floatValue();
+            pointer[3] = ((Float)getYAt.invoke(event, SECOND_POINTER)).floatValue();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
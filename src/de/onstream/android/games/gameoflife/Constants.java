@@ -41,4 +41,26 @@ package de.onstream.android.games.gameoflife;
 public class Constants
 {
     public static final String NAME = "gameoflife";
+
+    //board size in cells, GameView.setBoardSize() can change it at runtime
+    public static final int DEFAULT_BOARD_WIDTH  = 16;
+    public static final int DEFAULT_BOARD_HEIGHT = 20;
+
+    //how fast the simulation thread calculates, 0 = as fast as it can
+    public static final int DEFAULT_GENERATIONS_PER_SECOND = 30;
+
+    //how often the game loop listener hears about new generations at most, however fast they are calculated
+    public static final int DEFAULT_LOOP_EVENTS_PER_SECOND = 10;
+
+    //stop the game when the board starts repeating itself (blinkers and other oscillators)
+    public static final boolean STOP_ON_CYCLE = true;
+
+    //bytes the generation history for going back in time may use
+    public static final long HISTORY_MEMORY_BUDGET = 2 * 1024 * 1024;
+
+    //cell edits that can wait for the simulation thread, a long each, more wait on the main thread
+    public static final int EDIT_QUEUE_SIZE = 16384;
+
+    //how long the main thread waits before it tries again to hand over edits that didn't fit
+    public static final long EDIT_RETRY_MILLIS = 10;
 }
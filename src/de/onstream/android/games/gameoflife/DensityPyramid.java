@@ -0,0 +1,192 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife;
+
+import java.util.Arrays;
+
+import de.onstream.android.games.gameoflife.engine.BoardSnapshot;
+import de.onstream.android.games.gameoflife.engine.ChangeSet;
+
+/**
+ * How many cells are alive in each 2^level x 2^level block of the board,
+ * for drawing a board that is too big to give each cell a pixel.
+ *
+ * The counts are kept for blocks of 8x8 cells and up, each level with half
+ * the columns and rows of the one below. Blocks of 2x2 and 4x4 would need
+ * more memory than the board itself, those are counted straight from the
+ * snapshot bits when asked for, that's at most 16 bits per block.
+ *
+ * After the first build the pyramid follows the snapshots through their
+ * change sets, a flipped cell costs one update per level. Only a full change
+ * set builds it again from scratch. The pyramid keeps its own copy of the
+ * cells it counted, because a change set may list a cell several times and
+ * the same snapshot can be drawn more than once.
+ */
+class DensityPyramid
+{
+    //the first level that is stored, blocks of 8x8 cells
+    static final int BASE = 3;
+
+    private int width  = 0;
+    private int height = 0;
+    private int words  = 0;
+    private long[] known = new long[0]; //the cells the counts are based on, laid out like the snapshot
+    private int[][] counts = new int[0][]; //counts[level - BASE], row by row
+    private int[] columns = new int[0]; //blocks per row of each level
+    private boolean valid = false;
+
+    int getLevels() {
+        return BASE + counts.length;
+    }
+
+    //forget everything, the next update() builds the pyramid again
+    void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Brings the counts up to date with s.
+     */
+    void update(BoardSnapshot s) {
+        ChangeSet changes = s.getChanges();
+        if (!valid || changes.isFull() || s.getWidth() != width || s.getHeight() != height)
+        {
+            build(s);
+            return;
+        }
+        long[] bits = s.getRows();
+        for (int c = 0; c < changes.size(); c++)
+        {
+            int index = changes.get(c);
+            int x = index % width;
+            int y = index / width;
+            int i = y * words + (x >>> 6);
+            long mask = 1L << x;
+            long now = bits[i] & mask;
+            if ((known[i] & mask) == now) continue; //flipped back, or seen already
+            known[i] ^= mask;
+            int delta = now != 0 ? 1 : -1;
+            for (int l = 0; l < counts.length; l++)
+            {
+                int shift = BASE + l;
+                counts[l][(y >>> shift) * columns[l] + (x >>> shift)] += delta;
+            }
+        }
+    }
+
+    private void build(BoardSnapshot s) {
+        if (s.getWidth() != width || s.getHeight() != height || counts.length == 0)
+            allocate(s.getWidth(), s.getHeight());
+        long[] bits = s.getRows();
+        System.arraycopy(bits, 0, known, 0, words * height);
+
+        //the base level byte by byte, a byte of a row is one row of an 8x8 block
+        int[] base = counts[0];
+        int baseColumns = columns[0];
+        Arrays.fill(base, 0);
+        for (int y = 0; y < height; y++)
+        {
+            int row = y * words;
+            int block = (y >>> BASE) * baseColumns;
+            for (int w = 0; w < words; w++)
+            {
+                long word = bits[row + w];
+                for (int b = 0; word != 0; b++, word >>>= 8)
+                    base[block + (w << 3) + b] += Integer.bitCount((int)word & 0xff);
+            }
+        }
+
+        //every other level sums up the four blocks below
+        for (int l = 1; l < counts.length; l++)
+        {
+            int[] below = counts[l - 1];
+            int[] level = counts[l];
+            int belowColumns = columns[l - 1];
+            int belowRows = below.length / belowColumns;
+            int cols = columns[l];
+            int used = Math.min(belowColumns, cols << 1); //the rest of the base level is past the board
+            Arrays.fill(level, 0);
+            for (int j = 0; j < belowRows; j++)
+                for (int i = 0; i < used; i++)
+                    level[(j >>> 1) * cols + (i >>> 1)] += below[j * belowColumns + i];
+        }
+        valid = true;
+    }
+
+    private void allocate(int width, int height) {
+        this.width  = width;
+        this.height = height;
+        words = (width + 63) >>> 6;
+        known = new long[words * height];
+        int levels = 1;
+        while ((width - 1) >>> (BASE + levels - 1) > 0 || (height - 1) >>> (BASE + levels - 1) > 0)
+            levels++;
+        counts  = new int[levels][];
+        columns = new int[levels];
+        for (int l = 0; l < levels; l++)
+        {
+            int shift = BASE + l;
+            //the base level gets room for whole words, the last one may stick out of the board
+            int cols = l == 0 ? words << (6 - BASE) : ((width - 1) >>> shift) + 1;
+            columns[l] = cols;
+            counts[l] = new int[cols * (((height - 1) >>> shift) + 1)];
+        }
+    }
+
+    /**
+     * @return the alive cells in block (i, j) of that level, blocks at the
+     * right and bottom edge may be partly outside the board
+     */
+    int count(BoardSnapshot s, int level, int i, int j) {
+        if (level >= BASE)
+        {
+            int l = level - BASE;
+            return counts[l][j * columns[l] + i];
+        }
+        //small blocks never cross a word, 2^level bits of 2^level rows
+        long[] bits = s.getRows();
+        int x = i << level;
+        int size = 1 << level;
+        long mask = (1L << size) - 1;
+        int y = j << level;
+        int end = Math.min(height, y + size);
+        int n = 0;
+        for (int row = y; row < end; row++)
+            n += Long.bitCount((bits[row * words + (x >>> 6)] >>> x) & mask);
+        return n;
+    }
+}
@@ -0,0 +1,403 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import de.onstream.android.games.gameoflife.engine.BoardSnapshot;
+import de.onstream.android.games.gameoflife.engine.ChangeSet;
+
+/**
+ * Draws board snapshots for GameView without allocating anything per frame.
+ *
+ * Only the part of the board the viewport shows is drawn. With big cells
+ * the empty grid comes from two strips, one pixel high and one pixel wide,
+ * which are stretched over the view, and every frame only paints the alive
+ * cells on top of it, using one preallocated Rect. The strips hold a piece
+ * of the grid of the whole board at the current zoom that is about twice
+ * as long as the view, so they only have to be drawn again after zooming
+ * or after panning far. When the cells get so small that the grid lines
+ * don't make sense anymore the renderer writes one pixel per cell into an
+ * int[] buffer instead, and lets the canvas scale that bitmap up.
+ *
+ * Both keep the last frame around (the field bitmap or the pixel buffer)
+ * and only repaint the cells listed in the snapshot's change set, so a
+ * sparse pattern on a big board costs O(changes) per frame, not O(area).
+ *
+ * Below one pixel per cell, whatever the mode, each pixel shows how many
+ * cells of a block are alive, taken from a DensityPyramid that follows the
+ * change sets. The blocks are chosen so that there is no more than one per
+ * pixel, so a frame costs about as much as the screen has pixels, however
+ * big the board is.
+ */
+public class GameRenderer
+{
+    public enum Mode {
+        AUTO,   //PIXELS for tiny cells, CELLS otherwise
+        CELLS,  //grid plus one rectangle per alive cell
+        PIXELS  //one pixel per cell, blitted with Bitmap.setPixels
+    }
+
+    //below that many pixels per cell AUTO switches to PIXELS
+    private static final int MIN_CELL_PX = 4;
+
+    private static final int COLOR_ALIVE = Color.RED;
+    private static final int COLOR_DEAD  = Color.WHITE;
+    private static final int COLOR_LINE  = Color.DKGRAY;
+
+    //what draw() actually does, depends on the mode and the zoom
+    private static final int DRAW_CELLS   = 0;
+    private static final int DRAW_PIXELS  = 1;
+    private static final int DRAW_DENSITY = 2;
+
+    private Mode mode = Mode.AUTO;
+    private int drawing = DRAW_CELLS;
+    private int level = 0; //DRAW_DENSITY: one pixel per 2^level x 2^level cells
+
+    private final Viewport viewport = new Viewport();
+    //the visible cells, or blocks of cells, from first to last - 1
+    private int firstColumn = 0;
+    private int lastColumn  = 0;
+    private int firstRow = 0;
+    private int lastRow  = 0;
+
+    private Bitmap columnLines; //dead cells and the lines between the columns, one pixel high
+    private Bitmap rowLines;    //the lines between the rows, one pixel wide
+    private int[] lines = new int[0];
+    //what the strips were drawn for: the scale and their first pixel on the scaled up board
+    private float linesScaleX = 0;
+    private float linesScaleY = 0;
+    private int linesX = 0;
+    private int linesY = 0;
+    private Bitmap field;     //CELLS mode: the last frame, updated cell by cell
+    private Canvas fieldCanvas;
+    private boolean redrawAll = true; //the last frame is useless, e.g. after a layout change
+    private Bitmap cellBitmap; //PIXELS and density: one pixel per visible cell or block
+    private int[] pixels = new int[0];
+
+    private final DensityPyramid pyramid = new DensityPyramid();
+    //colors from dead to alive, by how many of a block's cells are alive
+    private final int[] density = new int[65];
+
+    private Metrics metrics;
+
+    //reused for every cell and blit
+    private final Rect cell = new Rect();
+    private final Rect src  = new Rect();
+    private final Rect dst  = new Rect();
+
+    private final Paint line      = new Paint();
+    private final Paint fillAlive = new Paint();
+    private final Paint fillDead  = new Paint();
+    private final Paint blit      = new Paint();
+
+    GameRenderer() {
+        line.setStrokeWidth(2);
+        line.setStyle(Paint.Style.STROKE);
+        line.setColor(COLOR_LINE);
+        fillAlive.setStyle(Paint.Style.FILL);
+        fillAlive.setColor(COLOR_ALIVE);
+        fillDead.setStyle(Paint.Style.FILL);
+        fillDead.setColor(COLOR_DEAD);
+        blit.setFilterBitmap(false); //keep the cells sharp when scaling up
+
+        //white to red, a single cell in a block should still be visible
+        density[0] = COLOR_DEAD;
+        for (int i = 1; i < density.length; i++)
+        {
+            int gb = 255 - (16 + i * 3) * 255 / (16 + 64 * 3);
+            density[i] = 0xffff0000 | (gb << 8) | gb;
+        }
+        density[64] = COLOR_ALIVE;
+    }
+
+    //the viewport belongs to the renderer, call viewportChanged() after changing it
+    Viewport getViewport() {
+        return viewport;
+    }
+
+    Mode getMode() {
+        return mode;
+    }
+
+    void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    //where draw() records the render and blit times, null to not measure anything
+    void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Shows the whole board and prepares the buffers for the view. Called
+     * whenever the view or the board changes its size, never while drawing.
+     */
+    void layout(int viewWidth, int viewHeight, int boardWidth, int boardHeight) {
+        if (field == null || viewWidth != viewport.getViewWidth() || viewHeight != viewport.getViewHeight())
+        {
+            if (columnLines != null) columnLines.recycle();
+            if (rowLines != null) rowLines.recycle();
+            if (field != null) field.recycle();
+            if (cellBitmap != null) cellBitmap.recycle();
+            //the view plus half of it on both sides, and the line left of the first pixel
+            columnLines = Bitmap.createBitmap(2 * viewWidth + 2, 1, Bitmap.Config.ARGB_8888);
+            rowLines = Bitmap.createBitmap(1, 2 * viewHeight + 2, Bitmap.Config.ARGB_8888);
+            lines = new int[2 * Math.max(viewWidth, viewHeight) + 2];
+            field = Bitmap.createBitmap(viewWidth, viewHeight, Bitmap.Config.ARGB_8888);
+            fieldCanvas = new Canvas(field);
+            //a cell or block is at least one pixel, plus the ones cut off at both edges
+            cellBitmap = Bitmap.createBitmap(viewWidth + 2, viewHeight + 2, Bitmap.Config.ARGB_8888);
+            pixels = new int[(viewWidth + 2) * (viewHeight + 2)];
+        }
+        viewport.layout(viewWidth, viewHeight, boardWidth, boardHeight);
+        linesScaleX = 0; //the board may have changed its size
+        linesScaleY = 0;
+        viewportChanged();
+    }
+
+    /**
+     * Picks how to draw at the current zoom and what is visible. Called after
+     * every zoom or pan, never while drawing.
+     */
+    void viewportChanged() {
+        if (field == null) return;
+        float scale = Math.min(viewport.getScaleX(), viewport.getScaleY());
+        level = 0;
+        if (scale < 1)
+        {
+            drawing = DRAW_DENSITY;
+            int size = Math.max(viewport.getBoardWidth(), viewport.getBoardHeight());
+            while (scale * (1 << level) < 1 && (1 << level) < size)
+                level++;
+        }
+        else if (mode == Mode.PIXELS || (mode == Mode.AUTO && scale < MIN_CELL_PX))
+            drawing = DRAW_PIXELS;
+        else
+            drawing = DRAW_CELLS;
+
+        firstColumn = viewport.firstColumn() >> level;
+        firstRow    = viewport.firstRow() >> level;
+        lastColumn  = ((viewport.lastColumn() - 1) >> level) + 1;
+        lastRow     = ((viewport.lastRow() - 1) >> level) + 1;
+        if (drawing == DRAW_CELLS)
+            updateLines();
+        else
+        {
+            src.set(0, 0, lastColumn - firstColumn, lastRow - firstRow);
+            dst.set(viewport.left(firstColumn << level), viewport.top(firstRow << level),
+                    viewport.left(lastColumn << level), viewport.top(lastRow << level));
+        }
+        redrawAll = true;
+    }
+
+    //draws the strips again if the zoom changed or the view got close to their ends
+    private void updateLines() {
+        int scrollX = viewport.scrollX();
+        int scrollY = viewport.scrollY();
+        int viewWidth = viewport.getViewWidth();
+        int viewHeight = viewport.getViewHeight();
+        if (linesScaleX != viewport.getScaleX() || scrollX - 1 < linesX
+                || scrollX + viewWidth + 1 > linesX + columnLines.getWidth())
+        {
+            linesScaleX = viewport.getScaleX();
+            linesX = scrollX - viewWidth / 2 - 1;
+            drawLines(columnLines.getWidth(), linesX, linesScaleX, viewport.getBoardWidth(), COLOR_DEAD);
+            columnLines.setPixels(lines, 0, columnLines.getWidth(), 0, 0, columnLines.getWidth(), 1);
+        }
+        if (linesScaleY != viewport.getScaleY() || scrollY - 1 < linesY
+                || scrollY + viewHeight + 1 > linesY + rowLines.getHeight())
+        {
+            linesScaleY = viewport.getScaleY();
+            linesY = scrollY - viewHeight / 2 - 1;
+            //the column lines already painted the dead cells
+            drawLines(rowLines.getHeight(), linesY, linesScaleY, viewport.getBoardHeight(), Color.TRANSPARENT);
+            rowLines.setPixels(lines, 0, 1, 0, 0, 1, rowLines.getHeight());
+        }
+    }
+
+    //one row or column of the grid into lines[0..length), from pixel start of the scaled up board on
+    private void drawLines(int length, int start, float scale, int cells, int inside) {
+        //the same rounding as Viewport.boardPixelX()
+        int end = (int)Math.floor(cells * scale);
+        for (int p = 0; p < length; p++)
+        {
+            int b = start + p;
+            lines[p] = b >= 0 && b < end ? inside : Color.TRANSPARENT;
+        }
+        //two pixels wide, where the line paint would put them: left of and on the first pixel of a cell
+        for (int i = Math.max(0, (int)Math.floor(start / scale)); i <= cells; i++)
+        {
+            int p = (int)Math.floor(i * scale) - start;
+            if (p - 1 >= length) break;
+            if (p - 1 >= 0) lines[p - 1] = COLOR_LINE;
+            if (p >= 0 && p < length) lines[p] = COLOR_LINE;
+        }
+    }
+
+    void draw(Canvas canvas, BoardSnapshot s) {
+        if (field == null) return;
+        final Metrics m = metrics;
+        long start = m != null ? System.nanoTime() : 0;
+        ChangeSet changes = s.getChanges();
+        boolean all = redrawAll || changes.isFull();
+        redrawAll = false;
+
+        //bring the last frame up to date
+        if (drawing == DRAW_DENSITY)
+        {
+            //the blocks are smaller than a pixel, no need to find out which ones changed
+            pyramid.update(s);
+            fillDensity(s);
+        }
+        else if (all)
+        {
+            pyramid.invalidate(); //it didn't follow the changes
+            if (drawing == DRAW_PIXELS)
+                fillPixels(s);
+            else
+                fillField(s);
+        }
+        else
+        {
+            pyramid.invalidate();
+            int columns = lastColumn - firstColumn;
+            for (int c = 0; c < changes.size(); c++)
+            {
+                int index = changes.get(c);
+                int i = index % s.getWidth();
+                int j = index / s.getWidth();
+                if (i < firstColumn || i >= lastColumn || j < firstRow || j >= lastRow) continue;
+                if (drawing == DRAW_PIXELS)
+                    pixels[(j - firstRow) * columns + i - firstColumn] = s.get(i, j) ? COLOR_ALIVE : COLOR_DEAD;
+                else
+                    drawCell(i, j, s.get(i, j) ? fillAlive : fillDead);
+            }
+        }
+
+        long blitStart = 0;
+        if (m != null)
+        {
+            blitStart = System.nanoTime();
+            m.render.record(blitStart - start);
+        }
+        //and put it on the screen
+        if (drawing == DRAW_CELLS)
+            canvas.drawBitmap(field, 0, 0, null);
+        else
+        {
+            int columns = lastColumn - firstColumn;
+            cellBitmap.setPixels(pixels, 0, columns, 0, 0, columns, lastRow - firstRow);
+            canvas.drawBitmap(cellBitmap, src, dst, blit);
+        }
+        if (m != null)
+            m.blit.record(System.nanoTime() - blitStart);
+    }
+
+    //the grid already shows the dead cells, only paint the alive ones
+    private void fillField(BoardSnapshot s) {
+        field.eraseColor(Color.TRANSPARENT);
+        int viewWidth = viewport.getViewWidth();
+        int viewHeight = viewport.getViewHeight();
+        //src and dst are free, they only describe the blit in the other modes
+        int x = viewport.scrollX() - linesX;
+        src.set(x, 0, x + viewWidth, 1);
+        dst.set(0, viewport.top(firstRow), viewWidth, viewport.top(lastRow));
+        fieldCanvas.drawBitmap(columnLines, src, dst, blit);
+        int y = viewport.scrollY() - linesY;
+        src.set(0, y, 1, y + viewHeight);
+        dst.set(viewport.left(firstColumn), 0, viewport.left(lastColumn), viewHeight);
+        fieldCanvas.drawBitmap(rowLines, src, dst, blit);
+
+        long[] bits = s.getRows();
+        int words = s.getWords();
+        int firstWord = firstColumn >>> 6;
+        int lastWord = (lastColumn - 1) >>> 6;
+        for (int j = firstRow; j < lastRow; j++)
+        {
+            int row = j * words;
+            for (int w = firstWord; w <= lastWord; w++)
+            {
+                long word = bits[row + w];
+                while (word != 0)
+                {
+                    int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    if (i < firstColumn) continue;
+                    if (i >= lastColumn) break;
+                    drawCell(i, j, fillAlive);
+                }
+            }
+        }
+    }
+
+    private void drawCell(int i, int j, Paint fill) {
+        cell.set(viewport.left(i), viewport.top(j), viewport.left(i + 1), viewport.top(j + 1));
+        fieldCanvas.drawRect(cell, fill);
+        fieldCanvas.drawRect(cell, line);
+    }
+
+    private void fillPixels(BoardSnapshot s) {
+        long[] bits = s.getRows();
+        int words = s.getWords();
+        int p = 0;
+        for (int j = firstRow; j < lastRow; j++)
+        {
+            int row = j * words;
+            for (int i = firstColumn; i < lastColumn; i++)
+                pixels[p++] = (bits[row + (i >>> 6)] & (1L << i)) != 0 ? COLOR_ALIVE : COLOR_DEAD;
+        }
+    }
+
+    private void fillDensity(BoardSnapshot s) {
+        final DensityPyramid d = pyramid;
+        final int l = level;
+        final int shift = 2 * l - 6; //count * 64 / 4^level
+        int p = 0;
+        for (int j = firstRow; j < lastRow; j++)
+            for (int i = firstColumn; i < lastColumn; i++)
+            {
+                int n = d.count(s, l, i, j);
+                //round up, so a block with anything alive in it never looks empty
+                pixels[p++] = density[shift > 0 ? (n + (1 << shift) - 1) >>> shift : n << -shift];
+            }
+    }
+}
@@ -0,0 +1,94 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife;
+
+/**
+ * What the game loop listener gets to see: where the simulation is right
+ * now. GameView fills one instance from the simulation thread and copies
+ * it into another one for the listener on the main thread, so nothing is
+ * allocated per event and the listener doesn't have to ask the view again.
+ * Don't keep a reference around, the values change with the next event.
+ */
+public class GameStats
+{
+    long generation;
+    long population;
+    long cyclePeriod;
+    int generationsPerSecond;
+
+    //the generation we delivered last and when, to measure the rate
+    private long lastGeneration;
+    private long lastTime;
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public long getPopulation() {
+        return population;
+    }
+
+    //the period of the cycle the board is in, 0 if it isn't (or we don't know yet)
+    public long getCyclePeriod() {
+        return cyclePeriod;
+    }
+
+    //measured between the last two events, not the configured speed
+    public int getGenerationsPerSecond() {
+        return generationsPerSecond;
+    }
+
+    void set(long generation, long population, long cyclePeriod) {
+        this.generation = generation;
+        this.population = population;
+        this.cyclePeriod = cyclePeriod;
+    }
+
+    //takes over the values of other and updates the measured rate, now in milliseconds
+    void copyFrom(GameStats other, long now) {
+        generation = other.generation;
+        population = other.population;
+        cyclePeriod = other.cyclePeriod;
+        long elapsed = now - lastTime;
+        if (generation < lastGeneration || lastTime == 0)
+            generationsPerSecond = 0; //rewound or reset, start over
+        else if (elapsed > 0)
+            generationsPerSecond = (int)((generation - lastGeneration) * 1000 / elapsed);
+        lastGeneration = generation;
+        lastTime = now;
+    }
+}
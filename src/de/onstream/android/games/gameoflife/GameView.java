@@ -37,359 +37,829 @@
 package de.onstream.android.games.gameoflife;
 
 import android.content.Context;
-import android.graphics.Bitmap;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.Rect;
 import android.util.Log;
 import android.view.MotionEvent;
 import android.view.View;
 import android.widget.ImageView;
 import android.os.Message;
+import android.os.SystemClock;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 
 import de.onstream.android.games.gameoflife.GameViewEventHandler.OnGameLoopListener;
 import de.onstream.android.games.gameoflife.GameViewEventHandler.OnGameStartedListener;
 import de.onstream.android.games.gameoflife.GameViewEventHandler.OnGameStoppedListener;
+import de.onstream.android.games.gameoflife.GameViewEventHandler.OnMetricsListener;
+import de.onstream.android.games.gameoflife.engine.BoardSnapshot;
+import de.onstream.android.games.gameoflife.engine.ChangeSet;
+import de.onstream.android.games.gameoflife.engine.CycleDetector;
+import de.onstream.android.games.gameoflife.engine.EditQueue;
+import de.onstream.android.games.gameoflife.engine.EngineType;
+import de.onstream.android.games.gameoflife.engine.GenerationHistory;
+import de.onstream.android.games.gameoflife.engine.LifeEngine;
+import de.onstream.android.games.gameoflife.engine.PatternFormat;
+import de.onstream.android.games.gameoflife.engine.PatternReader;
+import de.onstream.android.games.gameoflife.engine.PatternWriter;
+import de.onstream.android.games.gameoflife.engine.Patterns;
+import de.onstream.android.games.gameoflife.engine.Rule;
+import de.onstream.android.games.gameoflife.engine.SnapshotBuffer;
+import de.onstream.android.games.gameoflife.engine.SnapshotFile;
+import de.onstream.android.games.gameoflife.engine.Topology;
 
 public class GameView extends ImageView
 {
 
-    //width, height
-    private static final int MAX_WIDTH  = 16;
-    private static final int MAX_HEIGHT = 20;
+    //width, height of the board in cells
+    private int boardWidth  = Constants.DEFAULT_BOARD_WIDTH;
+    private int boardHeight = Constants.DEFAULT_BOARD_HEIGHT;
 
-    private int[][] stateA = new int[MAX_WIDTH][MAX_HEIGHT]; //Could we use byte instead of int to fasten things up?
-    private int[][] stateB = new int[MAX_WIDTH][MAX_HEIGHT]; //buffer, in which we enter the new state of each cell each turn
+    private EngineType engineType = EngineType.BITBOARD;
+    private Topology topology = Topology.BOUNDED; //what the user asked for, not every engine can do it
+    private LifeEngine engine = createEngine(engineType, boardWidth, boardHeight);
 
-    private Bitmap fieldBg;
-    private Bitmap field;
-    private Canvas canvas;
+    private final GameRenderer renderer = new GameRenderer();
+    private final Viewport viewport = renderer.getViewport();
+    private final BoardGestures gestures = new BoardGestures(viewport, new BoardGestures.Listener() {
+        public void onTap(float x, float y) {
+            touch_end(x, y);
+        }
+        public void onStrokeStart(float x, float y) {
+            touch_start(x, y);
+        }
+        public void onStroke(float x, float y) {
+            touch_move(x, y);
+        }
+        public void onViewportChanged() {
+            renderer.viewportChanged();
+            invalidate();
+        }
+    });
+
+    //the simulation runs in its own thread and hands us finished generations through the snapshots
+    private SimulationThread simulation;
+    private final SnapshotBuffer snapshots = new SnapshotBuffer();
+    private ChangeSet unpublished = new ChangeSet(engine.getChanges().getMaxSize()); //changes since the last snapshot
+
+    //what the user draws, applied by the simulation thread between generations, or right away without one
+    private final EditQueue edits = new EditQueue(Constants.EDIT_QUEUE_SIZE);
+    private int strokeOp;     //what the current stroke does to the cells, EditQueue.ALIVE or DEAD
+    private int strokeX = -1; //the last cell of the stroke
+    private int strokeY = -1;
+
+    private volatile long generation = 0;
+    private volatile int generationsPerSecond = Constants.DEFAULT_GENERATIONS_PER_SECOND;
+
+    //blinkers & co. never stop on their own, so we look out for repeating boards
+    private final CycleDetector cycleDetector = new CycleDetector();
+    private volatile boolean stopOnCycle = Constants.STOP_ON_CYCLE;
+    private volatile long cyclePeriod = 0;
+
+    //game loop events are coalesced: at most one is on its way, the listener gets the latest stats
+    private final GameStats loopStats = new GameStats();      //written by the simulation thread
+    private final GameStats deliveredStats = new GameStats(); //handed to the listener, main thread only
+    private volatile boolean loopPending = false;
+    private volatile long nextLoopEvent = 0; //uptime in ms, not earlier than that
+    private volatile int loopEventsPerSecond = Constants.DEFAULT_LOOP_EVENTS_PER_SECOND;
+
+    //null while disabled. The simulation thread records into it while holding its lock, onDraw() without
+    private volatile Metrics metrics;
+    private final Metrics deliveredMetrics = new Metrics(); //copy for the listener and the overlay, main thread only
+    private MetricsOverlay overlay; //null unless shown
+
+    //the last generations, so we can go back in time. Only touched under the engine lock,
+    //the main thread reads and sets what it needs through the volatiles
+    private final GenerationHistory history = new GenerationHistory(Constants.HISTORY_MEMORY_BUDGET);
+    private volatile long historyBudget = Constants.HISTORY_MEMORY_BUDGET;
+    private volatile long oldestGeneration = 0;
+    private final BoardSnapshot rewindSnapshot = new BoardSnapshot();
 
     private boolean running = false;
-    private int generation = 0;
-    private int wPxPerField = 0;
-    private int hPxPerField = 0;
-
-    Paint paint = new Paint();
-    Paint fillAlive = new Paint();
-    Paint fillDead  = new Paint();
-
-    private static final int DEAD  = 0;
-    private static final int ALIVE = 1;
+    private int viewWidth  = 0;
+    private int viewHeight = 0;
 
     GameViewEventHandler eventHandler = new GameViewEventHandler(this);
 
 	public GameView(Context context) {
 		super(context);
 
-        paint.setStrokeWidth(2);
-        paint.setStyle(Paint.Style.STROKE);
-        paint.setColor(Color.DKGRAY);
-        fillAlive.setStyle(Paint.Style.FILL);
-        fillAlive.setColor(Color.RED);
-        fillDead.setStyle(Paint.Style.FILL);
-        fillDead.setColor(Color.WHITE);
-
         setOnTouchListener(new OnTouchListener() {
 			@Override
 			public boolean onTouch(View v, MotionEvent event) {
-				float x = event.getX();
-				float y = event.getY();
-
-	            switch (event.getAction()) {
-	                case MotionEvent.ACTION_DOWN:
-	                    touch_start(x, y);
-	                    invalidate();
-	                    break;
-	                case MotionEvent.ACTION_MOVE:
-	                    touch_move(x, y);
-	                    invalidate();
-	                    break;
-	                case MotionEvent.ACTION_UP:
-	                    touch_end(x, y);
-	                    invalidate();
-	                    break;
-	            }
+	            gestures.onTouchEvent(event);
 	            return true;
 			}
         });
 	}
 
-    public int getGeneration() {
+    public long getGeneration() {
         return generation;
     }
 
-    private void clearArray(int[][] ar) {
-        for (int i = 0; i<MAX_WIDTH; i++)
-            for (int j = 0; j<MAX_HEIGHT; j++)
-                ar[i][j] = DEAD;
+    public boolean isRunning() {
+        return running;
+    }
+
+    //the period of the cycle the board is in, 0 if it isn't (or we don't know yet)
+    public long getCyclePeriod() {
+        return cyclePeriod;
+    }
+
+    public boolean isStopOnCycle() {
+        return stopOnCycle;
+    }
+
+    public void setStopOnCycle(boolean stop) {
+        stopOnCycle = stop;
+    }
+
+    public int getGenerationsPerSecond() {
+        return generationsPerSecond;
+    }
+
+    //0 means as fast as possible, independent of how often we can draw
+    public void setGenerationsPerSecond(int gps) {
+        generationsPerSecond = gps;
+    }
+
+    public int getLoopEventsPerSecond() {
+        return loopEventsPerSecond;
+    }
+
+    //how often the game loop listener is called at most, 0 means no limit, events are still coalesced
+    public void setLoopEventsPerSecond(int eventsPerSecond) {
+        loopEventsPerSecond = eventsPerSecond;
+    }
+
+    public boolean isMetricsEnabled() {
+        return metrics != null;
+    }
+
+    /**
+     * Starts or stops recording step, render and blit times, population and
+     * changed cells. While disabled all that is left of it are a few null
+     * checks per generation and frame.
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        if (enabled == (metrics != null)) return;
+        metrics = enabled ? new Metrics() : null;
+        renderer.setMetrics(metrics);
+        if (!enabled)
+        {
+            deliveredMetrics.reset();
+            setMetricsOverlay(false);
+        }
+    }
+
+    public void resetMetrics() {
+        Metrics m = metrics;
+        if (m == null) return;
+        synchronized (m) {
+            m.reset();
+        }
+        deliveredMetrics.reset();
+    }
+
+    public boolean isMetricsOverlay() {
+        return overlay != null;
+    }
+
+    //shows the metrics on top of the board, turns them on if necessary
+    public void setMetricsOverlay(boolean show) {
+        if (show == (overlay != null)) return;
+        if (show)
+            setMetricsEnabled(true);
+        overlay = show ? new MetricsOverlay() : null;
+        invalidate();
+    }
+
+    public LifeEngine getEngine() {
+        return engine;
+    }
+
+    public EngineType getEngineType() {
+        return engineType;
+    }
+
+    private static LifeEngine createEngine(EngineType type, int width, int height) {
+        LifeEngine e = type.create(width, height);
+        e.setTrackChanges(true); //so we only have to redraw what changed
+        return e;
+    }
+
+    //switch to another engine, the current board is taken over
+    public void setEngineType(EngineType type) {
+        if (type == engineType) return;
+        if (running) gameStop();
+        LifeEngine e = createEngine(type, boardWidth, boardHeight);
+        e.setRule(engine.getRule());
+        applyTopology(e);
+        for (int j = 0; j<boardHeight; j++)
+            for (int i = 0; i<boardWidth; i++)
+                if (engine.getCell(i, j))
+                    e.setCell(i, j, true);
+        engine.dispose();
+        engineType = type;
+        engine = e;
+        cycleDetector.reset();
+        history.clear(); //the new engine starts counting at generation 0
+        publishSnapshot();
+        invalidate();
+    }
+
+    public long getHistoryBudget() {
+        return historyBudget;
+    }
+
+    /**
+     * Bytes the generation history may use, the oldest generations are
+     * dropped first. A running simulation takes the new budget over before
+     * its next generation.
+     */
+    public void setHistoryBudget(long bytes) {
+        historyBudget = bytes;
+        if (simulation == null)
+            applyEdits(true); //nobody else works on the engine, so the lock is ours right away
+        else
+            simulation.editsQueued();
+    }
+
+    //the oldest generation rewind() can go back to
+    public long getOldestGeneration() {
+        return oldestGeneration;
+    }
+
+    //under the engine lock, after the history changed
+    private void historyChanged() {
+        oldestGeneration = history.isEmpty() ? engine.getGeneration() : history.getOldestGeneration();
+    }
+
+    /**
+     * Goes back n generations, or as far as the history reaches. Starting the
+     * game again continues from there.
+     *
+     * @return false if there was nothing to go back to
+     */
+    public boolean rewind(int n) {
+        if (running) gameStop();
+        synchronized (engine) {
+            long now = engine.getGeneration();
+            if (!history.contains(now)) return false;
+            long target = Math.max(history.getOldestGeneration(), now - n);
+            if (target == now) return false;
+            history.restore(target, rewindSnapshot);
+            engine.restore(rewindSnapshot);
+            history.truncate(target);
+            cycleDetector.reset();
+            cyclePeriod = 0;
+            publishSnapshot();
+        }
+        invalidate();
+        return true;
+    }
+
+    public Rule getRule() {
+        return engine.getRule();
+    }
+
+    /**
+     * The board stays as it is, it just evolves differently from now on.
+     * Like the cells the user draws, the rule goes through the edit queue,
+     * a running simulation switches before its next generation. Engines
+     * that can't run it keep their rule.
+     */
+    public void setRule(Rule rule) {
+        edits.addRule(rule);
+        flushEdits();
+    }
+
+    public Topology getTopology() {
+        return engine.getTopology();
+    }
+
+    /**
+     * Chooses what lies beyond the edges of the board. Engines that can't do
+     * it (HashLife has no edges at all) keep their own, but the choice is
+     * remembered for the next engine. It goes through the edit queue, like
+     * the rule.
+     */
+    public void setTopology(Topology t) {
+        topology = t;
+        edits.addTopology(t);
+        flushEdits();
+    }
+
+    private void applyTopology(LifeEngine e) {
+        try {
+            e.setTopology(topology);
+        } catch (IllegalArgumentException ex) {
+            Log.d(Constants.NAME, ex.getMessage());
+        }
+    }
+
+    public int getBoardWidth() {
+        return boardWidth;
+    }
+
+    public int getBoardHeight() {
+        return boardHeight;
+    }
+
+    //change the size of the board, this starts over with a new glider
+    public void setBoardSize(int width, int height) {
+        if (running) gameStop();
+        boardWidth  = width;
+        boardHeight = height;
+        Rule rule = engine.getRule();
+        engine.dispose();
+        engine = createEngine(engineType, width, height);
+        engine.setRule(rule);
+        applyTopology(engine);
+        unpublished = new ChangeSet(engine.getChanges().getMaxSize());
+        createGilder(engine);
+        cycleDetector.reset();
+        history.clear();
+        publishSnapshot();
+        if (viewWidth > 0)
+            renderer.layout(viewWidth, viewHeight, boardWidth, boardHeight);
+        invalidate();
+    }
+
+    /**
+     * Replaces the board with the pattern read from in. Patterns that tell
+     * their size are centred, Life 1.06 files get their origin in the middle.
+     */
+    public PatternFormat loadPattern(Reader in) throws IOException {
+        if (running) gameStop();
+        PatternReader r = new PatternReader(in);
+        PatternFormat format = r.readHeader();
+        int x = r.originX(boardWidth);
+        int y = r.originY(boardHeight);
+        synchronized (engine) {
+            engine.clear();
+            if (r.getRule() != null) {
+                try {
+                    engine.setRule(Rule.parse(r.getRule()));
+                } catch (IllegalArgumentException e) {
+                    Log.d(Constants.NAME, "ignoring rule " + r.getRule() + ": " + e.getMessage());
+                }
+            }
+            try {
+                r.readCells(engine, x, y);
+            } finally {
+                //show whatever made it onto the board, even if the file was broken
+                cycleDetector.reset();
+                history.clear();
+                cyclePeriod = 0;
+                publishSnapshot();
+            }
+        }
+        invalidate();
+        return format;
+    }
+
+    /**
+     * Writes the latest board the simulation published, the writer is
+     * flushed but not closed. The simulation goes on meanwhile.
+     */
+    public void savePattern(Writer out, PatternFormat format) throws IOException {
+        PatternWriter.write(out, snapshots.latest(), format);
+    }
+
+    /**
+     * Saves the latest published board with its generation, rule and
+     * topology, so restoreState() can continue exactly there. The
+     * simulation goes on meanwhile.
+     */
+    public void saveState(File file) throws IOException {
+        SnapshotFile.write(file, snapshots.latest());
+    }
+
+    /**
+     * Continues with the board saved by saveState(). The board size, rule
+     * and topology are taken over as well, as far as the engine can run them.
+     */
+    public void restoreState(File file) throws IOException {
+        if (running) gameStop();
+        BoardSnapshot s = new BoardSnapshot();
+        SnapshotFile.read(file, s);
+        if (s.getWidth() != boardWidth || s.getHeight() != boardHeight)
+            setBoardSize(s.getWidth(), s.getHeight());
+        //PLANE only says the engine had no edges, it is nobody's choice
+        if (s.getTopology() != null && s.getTopology() != Topology.PLANE)
+            setTopology(s.getTopology());
+        synchronized (engine) {
+            if (s.getRule() != null) {
+                try {
+                    engine.setRule(s.getRule());
+                } catch (IllegalArgumentException e) {
+                    Log.d(Constants.NAME, "ignoring rule " + s.getRule() + ": " + e.getMessage());
+                }
+            }
+            engine.restore(s);
+            cycleDetector.reset();
+            history.clear();
+            cyclePeriod = 0;
+            publishSnapshot();
+        }
+        invalidate();
     }
+
     //create a glider
-    private void createGilder(int[][] ar) {
-        int x = 4; //glider start position
+    private void createGilder(LifeEngine e) {
+        int x = 3; //glider start position
         int y = 5;
-        ar[x][y]     = ALIVE;
-        ar[x-1][y+2] = ALIVE;
-        ar[x][y+2]   = ALIVE;
-        ar[x+1][y+1] = ALIVE;
-        ar[x+1][y+2] = ALIVE;
+        if (e.getWidth() < x+3 || e.getHeight() < y+3) return; //board too small
+        Patterns.place(e, Patterns.GLIDER, x, y);
     }
 
     public void init(int w, int h) {
-        //clear arrays and initalize them again
-        clearArray(stateA);
-        clearArray(stateB);
-        createGilder(stateA);
+        //clear the board and initalize it again
+        synchronized (engine) {
+            engine.clear();
+            createGilder(engine);
+            history.clear();
+            publishSnapshot();
+        }
         
-        fieldBg = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
-        field   = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
-        canvas = new Canvas(field);
+        viewWidth  = w;
+        viewHeight = h;
+        renderer.layout(w, h, boardWidth, boardHeight);
+    }
 
-        wPxPerField = w / MAX_WIDTH;
-        hPxPerField = h / MAX_HEIGHT;
+    public GameRenderer.Mode getRenderMode() {
+        return renderer.getMode();
+    }
 
-        //draw the field background now
-        Canvas c = new Canvas(fieldBg);
-        for (int i = 0; i<MAX_WIDTH; i++)
-            for (int j = 0; j<MAX_HEIGHT; j++)
-            {
-                int left    = i * wPxPerField;
-                int top     = j * hPxPerField;
-                int right   = (i+1) * wPxPerField;
-                int bottom  = (j+1) * hPxPerField;
-
-                //Log.d(Constants.NAME, String.format("l: %d, t: %d, r: %d, b: %d", left, top, right, bottom));
-                Rect r = new Rect(left, top, right, bottom);
-                
-                c.drawRect(r, fillDead);
-                c.drawRect(r, paint);
-            }
+    public void setRenderMode(GameRenderer.Mode mode) {
+        renderer.setMode(mode);
+        if (viewWidth > 0)
+            renderer.layout(viewWidth, viewHeight, boardWidth, boardHeight);
+        invalidate();
+    }
+
+    public float getZoom() {
+        return viewport.getZoom();
+    }
+
+    //how far setZoom() goes, the cells are never drawn bigger than Viewport.MAX_CELL_PX
+    public float getMaxZoom() {
+        return viewport.getMaxZoom();
+    }
+
+    /**
+     * Zooms around the middle of the view. At 1 the whole board fits the
+     * view, that's also the minimum.
+     */
+    public void setZoom(float zoom) {
+        if (viewport.zoomTo(zoom, viewWidth / 2f, viewHeight / 2f))
+        {
+            renderer.viewportChanged();
+            invalidate();
+        }
+    }
+
+    public void zoomBy(float factor) {
+        setZoom(viewport.getZoom() * factor);
+    }
+
+    //moves the board by that many pixels, as far as it can go
+    public void panBy(float dx, float dy) {
+        if (viewport.pan(dx, dy))
+        {
+            renderer.viewportChanged();
+            invalidate();
+        }
+    }
+
+    public boolean isDrawMode() {
+        return gestures.isPainting();
+    }
+
+    //true: dragging a finger draws cells, false: it moves the board, two fingers always do
+    public void setDrawMode(boolean draw) {
+        gestures.setPainting(draw);
     }
 
     public void gameStart() {
         Log.d(Constants.NAME, "gameStart");
+        if (running) return;
         running = true;
-        generation = 0;
-        invalidate(); //force redraw
+        synchronized (engine) {
+            //the starting position is the first generation of the history
+            cycleDetector.reset();
+            cyclePeriod = 0;
+            cycleDetector.update(engine, engine.getChanges());
+            history.record(engine, null); //unless we are still at its newest generation
+            historyChanged();
+        }
+        simulation = new SimulationThread(this, engine);
+        simulation.start();
         sendMessage(GameViewEventHandler.GAME_STARTED);
     }
     public void gameReset() {
         Log.d(Constants.NAME, "gameReset");
-        running = false;
-        generation = 0;
-        clearArray(stateA);
-        clearArray(stateB);
-        createGilder(stateA);
+        stopSimulation();
+        synchronized (engine) {
+            engine.clear();
+            createGilder(engine);
+            cycleDetector.reset();
+            cyclePeriod = 0;
+            history.clear();
+            publishSnapshot();
+        }
         sendMessage(GameViewEventHandler.GAME_STARTED);//should have it's own event handler
         invalidate();
     }
     public void gameStop() {
         Log.d(Constants.NAME, "gameStop");
-        running = false;
+        stopSimulation();
         sendMessage(GameViewEventHandler.GAME_STOPPED);
     }
 
-    private void touch_start(float x, float y) {
-        //what to do?
+    //stops the simulation thread and waits until it is gone
+    private void stopSimulation() {
+        running = false;
+        SimulationThread t = simulation;
+        simulation = null;
+        if (t == null) return;
+        t.finish();
+        //a late game loop event would overwrite what the stop event has to say
+        eventHandler.removeMessages(GameViewEventHandler.GAME_LOOP);
+        loopPending = false;
+        boolean interrupted = false;
+        while (t.isAlive())
+        {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        eventHandler.removeMessages(GameViewEventHandler.FLUSH_EDITS);
+        flushEdits(); //whatever the thread didn't get to anymore
+        //the last generations may have been calculated while the one before wasn't drawn yet
+        publishSnapshot();
+        postInvalidate();
     }
-    private void touch_move(float x, float y) {
-        //what to do?
+
+    /**
+     * Copies the board into the snapshot buffer, so the next onDraw() sees it.
+     * Only one thread at a time may do that, so we use the engine as lock.
+     */
+    private void publishSnapshot() {
+        synchronized (engine) {
+            BoardSnapshot back = snapshots.getBack();
+            engine.snapshot(back);
+            //hand over what changed since the last snapshot
+            collectChanges();
+            back.getChanges().clear();
+            back.getChanges().addAll(unpublished);
+            unpublished.clear();
+            generation = engine.getGeneration();
+            historyChanged();
+            snapshots.publish();
+        }
     }
-    private void touch_end(Float x, Float y) {
 
-        int ix = x.intValue();
-        int iy = y.intValue();
+    //moves the flipped cells out of the engine, so it starts the next generation with an empty set
+    private void collectChanges() {
+        unpublished.addAll(engine.getChanges());
+        engine.getChanges().clear();
+    }
 
-        //set cell at x,y coord to the opposite of it's current status
-        for (int i = 0; i<MAX_WIDTH; i++)
-            for (int j = 0; j<MAX_HEIGHT; j++)
-            {
-                int left    = i * wPxPerField;
-                int top     = j * hPxPerField;
-                int right   = (i+1) * wPxPerField;
-                int bottom  = (j+1) * hPxPerField;
-
-                //Log.d(Constants.NAME, String.format("x: %d, y:%d, l: %d, t: %d, r: %d, b: %d", ix, iy, left, top, right, bottom));
-
-                if (ix>=left && ix<=right && iy>=top && iy<=bottom)
-                {
-                    //Log.d(Constants.NAME, "found touch inside cell");
-                    if (stateA[i][j] == ALIVE)
-                        stateA[i][j] = DEAD;
-                    else
-                        stateA[i][j] = ALIVE;
-                    return;
-                }
+    /**
+     * Called by the simulation thread after every generation, it holds the
+     * engine lock.
+     *
+     * @param stepTime how long the engine took in nanoseconds, -1 if not measured
+     * @return false if the simulation should stop
+     */
+    boolean onGenerationCalculated(long stepTime) {
+        Metrics m = metrics;
+        if (m != null && stepTime >= 0)
+        {
+            ChangeSet c = engine.getChanges();
+            synchronized (m) {
+                m.step.record(stepTime);
+                m.population.record(engine.getPopulation());
+                m.changedCells.record(c.isFull() ? (long)engine.getWidth() * engine.getHeight() : c.size());
             }
-        Log.d(Constants.NAME, "no cell for touch found");
-    }
+        }
+        boolean cycle = cycleDetector.update(engine, engine.getChanges());
+        history.record(engine, engine.getChanges());
+        historyChanged();
+        collectChanges();
+        generation = engine.getGeneration();
+        //don't bother copying if the last snapshot wasn't even drawn yet
+        if (!snapshots.hasPending())
+        {
+            publishSnapshot();
+            postInvalidate();
+        }
 
-    @Override
-	public void onDraw(Canvas canvas) //this is our game loop
-	{
-		//Log.d(Constants.NAME, "onDraw");
-        if (field != null && fieldBg != null)
+        if (cycle)
         {
-            canvas.drawBitmap(fieldBg, 0, 0, null);
-            //calculate new generation
-            calculateGeneration();
-            drawGeneration();
-            //draw new generation
-            canvas.drawBitmap(field, 0, 0, null);
+            if (cyclePeriod == 0)
+                Log.d(Constants.NAME, "cycle found, period " + cycleDetector.getPeriod());
+            cyclePeriod = cycleDetector.getPeriod();
         }
-		super.onDraw(canvas);
-        if (running)
-            invalidate(); //force redraw, which basically means: call onDraw again => next cycle in our game loop!
-	}
+        postGameLoop();
+        return !cycle || !stopOnCycle;
+    }
 
     /**
-     * http://en.wikipedia.org/wiki/Conway's_Game_of_Life
-     *
-     * The basic rules are as follows (quoted from above's article):
-     *
-     * The universe of the Game of Life is an infinite two-dimensional orthogonal grid of square cells,
-     * each of which is in one of two possible states, live or dead. Every cell interacts with its eight
-     * neighbors, which are the cells that are directly horizontally, vertically, or diagonally adjacent.
-     * At each step in time, the following transitions occur:
-     * 
-     * 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
-     * 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
-     * 3. Any live cell with two or three live neighbours lives on to the next generation.
-     * 4. Any dead cell with exactly three live neighbours becomes a live cell.
-     *
-     * I use stateB as a buffer in which I write the new state for each cell.
-     * When I'm finished with all the calculations I copy all information back at once to the
-     * stateA array.
-     *
-     * This uses twice as much memory (cause we have 2 arrays of the same size) but on the
-     * other hand it's pretty easy to implement and I was lazy. ;-)
+     * Lets the game loop listener know about the new generation. However
+     * fast the simulation runs, there is never more than one GAME_LOOP
+     * message waiting and it is delivered no earlier than the rate allows,
+     * so the main thread does the same amount of work at 10 or at 100000
+     * generations per second. Whatever happens in between just updates the
+     * stats the pending message will pick up.
      */
-    private void calculateGeneration() {
-        if (!running) return;
-        //Log.d(Constants.NAME, "calculateGeneration");
+    private void postGameLoop() {
+        synchronized (loopStats) {
+            loopStats.set(generation, engine.getPopulation(), cyclePeriod);
+        }
+        if (loopPending) return;
+        loopPending = true;
+        long delay = nextLoopEvent - SystemClock.uptimeMillis();
+        eventHandler.sendEmptyMessageDelayed(GameViewEventHandler.GAME_LOOP, delay > 0 ? delay : 0);
+    }
 
-        //Check if at least one cell is still alive, if not, stop the game because everybody is DEAD!
-        boolean atLeastOneAlive = false;
-        for (int i = 0; i<MAX_WIDTH; i++)
-        {
-            for (int j = 0; j<MAX_HEIGHT; j++)
-                if (stateA[i][j] == ALIVE)
-                {
-                    atLeastOneAlive = true;
-                    break;
-                }
-            if (atLeastOneAlive) break;
+    //called by the event handler on the main thread
+    void deliverGameLoop() {
+        long now = SystemClock.uptimeMillis();
+        //from here on generations need a new message, the stats below may already include them
+        loopPending = false;
+        int rate = loopEventsPerSecond;
+        nextLoopEvent = rate > 0 ? now + 1000 / rate : now;
+        synchronized (loopStats) {
+            deliveredStats.copyFrom(loopStats, now);
         }
-        if (!atLeastOneAlive)
-        {
-            gameStop();
-            return;
+        if (onGameLoopListener != null)
+            onGameLoopListener.onGameLoop(this, deliveredStats);
+
+        Metrics m = metrics;
+        if (m == null) return;
+        synchronized (m) {
+            if (deliveredStats.getGenerationsPerSecond() > 0)
+                m.generationsPerSecond.record(deliveredStats.getGenerationsPerSecond());
+            deliveredMetrics.copyFrom(m);
         }
+        if (onMetricsListener != null)
+            onMetricsListener.onMetrics(this, deliveredMetrics);
+        if (overlay != null)
+            invalidate();
+    }
 
-        //if no cell changed we are stuck, so end the game
-        boolean changed = false;
+    //called by the simulation thread when it stops on its own
+    void onSimulationFinished() {
+        publishSnapshot();
+        postInvalidate();
+        final Thread finishedThread = Thread.currentThread();
+        post(new Runnable() {
+            public void run() {
+                //unless the game was stopped or restarted in the meantime
+                if (simulation != finishedThread) return;
+                gameStop();
+            }
+        });
+    }
+
+    //a stroke starts, it turns dead cells alive and the other way round, depending on where it starts
+    private void touch_start(float x, float y) {
+        strokeX = viewport.cellX(x);
+        strokeY = viewport.cellY(y);
+        BoardSnapshot s = snapshots.peek(); //what is on the screen, acquire() is onDraw()'s business
+        boolean alive = strokeX >= 0 && strokeY >= 0 && strokeX < s.getWidth() && strokeY < s.getHeight()
+                        && s.get(strokeX, strokeY);
+        strokeOp = alive ? EditQueue.DEAD : EditQueue.ALIVE;
+        edit(strokeX, strokeY, strokeOp);
+        flushEdits();
+    }
 
-        //Log.d(Constants.NAME, "calculateGeneration at least one cell is alive");
-        //now calculate the new states for each cell
-        for (int i = 0; i<MAX_WIDTH; i++)
-            for (int j = 0; j<MAX_HEIGHT; j++)
+    //draws a line from the last cell of the stroke to the cell under x,y (Bresenham)
+    private void touch_move(float x, float y) {
+        int i1 = viewport.cellX(x);
+        int j1 = viewport.cellY(y);
+        int i = strokeX;
+        int j = strokeY;
+        if (i == i1 && j == j1) return;
+        int dx = Math.abs(i1 - i);
+        int dy = -Math.abs(j1 - j);
+        int sx = i < i1 ? 1 : -1;
+        int sy = j < j1 ? 1 : -1;
+        int err = dx + dy;
+        while (i != i1 || j != j1)
+        {
+            int e2 = 2 * err;
+            if (e2 >= dy)
             {
-                boolean cellAlive = stateA[i][j] == ALIVE;
-                int aliveNeighbours = 0;
-                //Count all alive neighbours
-                //8 = upper left neighbour
-                //7 = upper top neighbour
-                //6 = upper right neigbhour
-                //5 = left neighbour
-                //4 = right neighbour
-                //3 = lower left neighbour
-                //2 = lower bottom neighbour
-                //1 = lower right neighbour
-                for (int neighbour = 8; neighbour>0; neighbour--)
-                {
-                    boolean leftNeighbour   = neighbour == 8 || neighbour == 5 || neighbour == 3;
-                    boolean rightNeighbour  = neighbour == 7 || neighbour == 4 || neighbour == 1;
-                    boolean topNeighbour    = neighbour == 6 || neighbour == 7 || neighbour == 8;
-                    boolean bottomNeighbour = neighbour == 1 || neighbour == 2 || neighbour == 3;
-
-                    if (i == 0 && leftNeighbour) //there can't be anyone to the left
-                        continue;
-                    if (i == MAX_WIDTH-1 && rightNeighbour) //there can't be anyone to the right
-                        continue;
-                    if (j == 0 && topNeighbour) //there can't be anyone on top of us
-                        continue;
-                    if (j == MAX_HEIGHT-1 && bottomNeighbour) //there can't be anyone below us
-                        continue;
-
-                    int ni = i;
-                    int nj = j;
-
-                    if (rightNeighbour)  ni++;
-                    if (leftNeighbour)   ni--;
-                    if (topNeighbour)    nj++;
-                    if (bottomNeighbour) nj--;
-
-                    if (ni < 0 || ni >=MAX_WIDTH)  ni = i;
-                    if (nj < 0 || nj >=MAX_HEIGHT) nj = j;
-
-                    if (ni == i && nj == j) continue;
-
-                    if (stateA[ni][nj] == ALIVE) aliveNeighbours++;
-                }
-                //no log here, cause it's slows down the process hardcore!
-                //Log.d(Constants.NAME, String.format("Found %d alive neighbours for %s cell at %d/%d", aliveNeighbours, (cellAlive ? "alive" : "dead"), i, j));
-                //1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
-                //2. Any live cell with more than three live neighbours dies, as if by overcrowding.
-                //3. Any live cell with two or three live neighbours lives on to the next generation.
-                //4. Any dead cell with exactly three live neighbours becomes a live cell.
-                if ((cellAlive && aliveNeighbours<2) || (cellAlive && aliveNeighbours>3))
-                {
-                    stateB[i][j] = DEAD; //rules 1 & 2
-                    changed = true;
-                }
-                else if (!cellAlive && aliveNeighbours==3)
-                {
-                    stateB[i][j] = ALIVE; //rule 4
-                    changed = true;
-                }
-                //else if (cellAlive && aliveNeighbours>=2 && aliveNeighbours<=3)
-                //    stateB[i][j] = ALIVE; //rule 3
-                else //just use the old state ==> this is rule 3
-                    stateB[i][j] = stateA[i][j];
+                err += dy;
+                i += sx;
+            }
+            if (e2 <= dx)
+            {
+                err += dx;
+                j += sy;
             }
+            edit(i, j, strokeOp); //the first cell was drawn by the last move already
+        }
+        strokeX = i1;
+        strokeY = j1;
+        flushEdits();
+    }
 
-        //copy new states
-        for (int i = 0; i<MAX_WIDTH; i++)
-            System.arraycopy(stateB[i], 0, stateA[i], 0, MAX_HEIGHT);
+    private void touch_end(float x, float y) {
+        int i = viewport.cellX(x);
+        int j = viewport.cellY(y);
 
-        if (!changed)
+        //set cell at x,y coord to the opposite of it's current status
+        if (i >= 0 && j >= 0 && i < boardWidth && j < boardHeight)
         {
-            gameStop();
+            edit(i, j, EditQueue.TOGGLE);
+            flushEdits();
             return;
         }
-
-        sendMessage(GameViewEventHandler.GAME_LOOP);
-        generation++;
+        Log.d(Constants.NAME, "no cell for touch found");
     }
 
-    private void drawGeneration() {
-        for (int i = 0; i<MAX_WIDTH; i++)
-            for (int j = 0; j<MAX_HEIGHT; j++)
-            {
-                int left    = i * wPxPerField;
-                int top     = j * hPxPerField;
-                int right   = (i+1) * wPxPerField;
-                int bottom  = (j+1) * hPxPerField;
+    private void edit(int i, int j, int op) {
+        if (i < 0 || j < 0 || i >= boardWidth || j >= boardHeight) return;
+        edits.add(i, j, op);
+    }
 
-                //Log.d(Constants.NAME, String.format("l: %d, t: %d, r: %d, b: %d", left, top, right, bottom));
-                Rect r = new Rect(left, top, right, bottom);
+    /**
+     * Hands the edits to whoever applies them. While the simulation runs,
+     * edits that don't fit into the queue stay with us, and the event handler
+     * calls this again a little later, so the main thread never waits for a
+     * generation to finish.
+     */
+    void flushEdits() {
+        SimulationThread t = simulation;
+        if (t == null)
+        {
+            //nobody else works on the engine, so the lock is ours right away
+            boolean all;
+            do {
+                all = edits.flush();
+                applyEdits(true);
+            } while (!all);
+            return;
+        }
+        boolean all = edits.flush();
+        t.editsQueued();
+        if (!all && !eventHandler.hasMessages(GameViewEventHandler.FLUSH_EDITS))
+            eventHandler.sendEmptyMessageDelayed(GameViewEventHandler.FLUSH_EDITS, Constants.EDIT_RETRY_MILLIS);
+    }
 
-                canvas.drawRect(r, (stateA[i][j] == ALIVE) ? fillAlive : fillDead);
-                canvas.drawRect(r, paint);
+    /**
+     * Takes everything out of the edit queue and puts it on the board. Called
+     * by the simulation thread between generations, or by the main thread
+     * while there is none. Only one of them can hold the engine lock, so the
+     * queue never has two consumers at once. The rewind history keeps what
+     * was before, the generation after the edit starts with a keyframe.
+     *
+     * @param publish false if a generation is calculated right after this,
+     * which publishes the edits along with it
+     */
+    void applyEdits(boolean publish) {
+        if (edits.isEmpty() && history.getBudget() == historyBudget) return;
+        synchronized (engine) {
+            if (history.getBudget() != historyBudget)
+            {
+                history.setBudget(historyBudget);
+                historyChanged();
             }
+            if (edits.drainTo(engine) == 0) return;
+            cycleDetector.reset(); //the earlier generations don't lead here anymore
+            cyclePeriod = 0;
+            history.forceKeyframe();
+            if (publish)
+                publishSnapshot();
+        }
+        if (publish)
+            postInvalidate();
     }
 
+    @Override
+	public void onDraw(Canvas canvas)
+	{
+		//Log.d(Constants.NAME, "onDraw");
+        BoardSnapshot s = snapshots.acquire();
+        //draw the latest generation the simulation thread finished, unless the board got resized meanwhile
+        if (s.getWidth() == boardWidth && s.getHeight() == boardHeight)
+            renderer.draw(canvas, s);
+        if (overlay != null)
+            overlay.draw(canvas, deliveredMetrics);
+		super.onDraw(canvas);
+	}
+
     //EVENT STUFF ... not the best design
 	private OnGameStoppedListener onGameStoppedListener;
 	public void setOnGameStoppedListener(OnGameStoppedListener listener) {
@@ -415,6 +885,14 @@ public class GameView extends ImageView
         return onGameLoopListener;
     }
 
+    private OnMetricsListener onMetricsListener;
+	public void setOnMetricsListener(OnMetricsListener listener) {
+		onMetricsListener = listener;
+	}
+    protected OnMetricsListener getOnMetricsListener() {
+        return onMetricsListener;
+    }
+
     // Send a message to a Handler
 	private void sendMessage(int what, Object obj) {
 		// Needs a message sent to the Handler
@@ -46,6 +46,7 @@ public class GameViewEventHandler extends Handler {
     public static final int GAME_STOPPED    = 0;
     public static final int GAME_STARTED    = 1;
     public static final int GAME_LOOP       = 2;
+    public static final int FLUSH_EDITS     = 3;
 
     private GameView gv;
 
@@ -66,8 +67,10 @@ public class GameViewEventHandler extends Handler {
                 gv.getOnGameStartedListener().onGameStarted(gv);
             break;
         case GAME_LOOP:
-            if (gv.getOnGameLoopListener() != null)
-                gv.getOnGameLoopListener().onGameLoop(gv);
+            gv.deliverGameLoop();
+            break;
+        case FLUSH_EDITS:
+            gv.flushEdits();
             break;
         default:
             break;
@@ -80,7 +83,12 @@ public class GameViewEventHandler extends Handler {
     public interface OnGameStartedListener {
 		void onGameStarted(GameView gv);
 	}
+    //called at most getLoopEventsPerSecond() times a second, stats is reused for the next call
     public interface OnGameLoopListener {
-		void onGameLoop(GameView gv);
+		void onGameLoop(GameView gv, GameStats stats);
+	}
+    //called right after onGameLoop() while metrics are enabled, metrics is reused for the next call
+    public interface OnMetricsListener {
+		void onMetrics(GameView gv, Metrics metrics);
 	}
 }
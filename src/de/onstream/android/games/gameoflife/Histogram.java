@@ -0,0 +1,121 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife;
+
+/**
+ * Counts non-negative values in 64 buckets, one per power of two: bucket 0
+ * holds 0, bucket b the values from 2^(b-1) to 2^b - 1. That is coarse,
+ * but recording is a couple of instructions, the size never changes and a
+ * percentile is still good to a factor of two, which is all we need to
+ * tell a 100us step from a 10ms one.
+ *
+ * Not thread safe, every histogram has one writer.
+ */
+public class Histogram
+{
+    private final long[] buckets = new long[64];
+    private long count;
+    private long sum;
+    private long min;
+    private long max;
+    private long last;
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        buckets[64 - Long.numberOfLeadingZeros(value)]++;
+        if (count == 0 || value < min) min = value;
+        if (value > max) max = value;
+        count++;
+        sum += value;
+        last = value;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getLast() {
+        return last;
+    }
+
+    public long getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * The value that p percent of the recorded values don't exceed, rounded
+     * up to the end of its bucket (but never above the maximum).
+     */
+    public long getPercentile(int p) {
+        if (count == 0) return 0;
+        long rank = (count * p + 99) / 100; //the rank-th smallest value, counting from 1
+        if (rank < 1) rank = 1;
+        long seen = 0;
+        for (int b = 0; b < 64; b++)
+        {
+            seen += buckets[b];
+            if (seen >= rank)
+            {
+                return Math.min((1L << b) - 1, max); //for b = 63 that wraps around to Long.MAX_VALUE
+            }
+        }
+        return max;
+    }
+
+    public void reset() {
+        for (int b = 0; b < 64; b++)
+            buckets[b] = 0;
+        count = sum = min = max = last = 0;
+    }
+
+    void copyFrom(Histogram other) {
+        System.arraycopy(other.buckets, 0, buckets, 0, 64);
+        count = other.count;
+        sum = other.sum;
+        min = other.min;
+        max = other.max;
+        last = other.last;
+    }
+}
@@ -38,6 +38,9 @@ package de.onstream.android.games.gameoflife;
 
 import android.app.Activity;
 import android.os.Bundle;
+import android.os.Environment;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup.LayoutParams;
 import android.widget.Button;
@@ -45,15 +48,42 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 //import android.util.Log;
 
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+import de.onstream.android.games.gameoflife.engine.PatternFormat;
+
 public class MainActivity extends Activity implements GameViewEventHandler.OnGameLoopListener,
                                                       GameViewEventHandler.OnGameStartedListener,
                                                       GameViewEventHandler.OnGameStoppedListener
 {
+    private static final int MENU_LOAD = 1;
+    private static final int MENU_SAVE = 2;
+    private static final int MENU_METRICS = 3;
+    private static final int MENU_ZOOM_IN  = 4;
+    private static final int MENU_ZOOM_OUT = 5;
+    private static final int MENU_DRAW = 6;
+
+    //patterns are loaded from and saved to the sd card, other RLE tools can read it too
+    private static final String PATTERN_FILE = "gameoflife.rle";
+
+    //the board survives restarts of the activity and the whole process in here
+    private static final String STATE_FILE = "board.snapshot";
+
     GameView gv;
     TextView lblInfo;
 
     private boolean done = false; //only init once
 
+    //onGameLoop() writes the info text in here instead of formatting a new String every time
+    private static final char[] GENERATION = "Generation: ".toCharArray();
+    private static final char[] PER_SECOND = "/s)".toCharArray();
+    private final char[] info = new char[64];
+
     /** Called when the activity is first created. */
     @Override
     public void onCreate(Bundle icicle) {
@@ -96,6 +126,28 @@ public class MainActivity extends Activity implements GameViewEventHandler.OnGam
                 gv.gameReset();
             }
         });
+        final Button btnBack = (Button)findViewById(R.id.btnBack);
+        btnBack.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View arg0) {
+                if (gv.rewind(1))
+                    lblInfo.setText("Generation: " + gv.getGeneration());
+            }
+        });
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        //the simulation runs in its own thread, don't let it eat the battery in the background
+        if (gv.isRunning())
+            gv.gameStop();
+        if (!done) return; //the saved board wasn't even restored yet
+        try {
+            gv.saveState(new File(getFilesDir(), STATE_FILE));
+        } catch (IOException e) {
+            //not worth bothering the user, next time we start with a glider
+        }
     }
 
     @Override
@@ -107,12 +159,103 @@ public class MainActivity extends Activity implements GameViewEventHandler.OnGam
             if (!done) {
                 done = true;
                 gv.init(w, h);
+                restoreState();
             }
         }
     }
 
-    public void onGameLoop(GameView gv) {
-        lblInfo.setText(String.format("Generation: %d", gv.getGeneration()));
+    //picks up where the last onPause() left off, if there is anything
+    private void restoreState() {
+        File file = new File(getFilesDir(), STATE_FILE);
+        if (!file.exists()) return;
+        try {
+            gv.restoreState(file);
+            lblInfo.setText("Generation: " + gv.getGeneration());
+        } catch (IOException e) {
+            file.delete(); //broken, don't try again
+        }
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        menu.add(0, MENU_LOAD, 0, R.string.menuLoad);
+        menu.add(0, MENU_SAVE, 0, R.string.menuSave);
+        menu.add(0, MENU_METRICS, 0, R.string.menuMetrics);
+        //for phones without multitouch, where pinching doesn't work
+        menu.add(0, MENU_ZOOM_IN, 0, R.string.menuZoomIn);
+        menu.add(0, MENU_ZOOM_OUT, 0, R.string.menuZoomOut);
+        menu.add(0, MENU_DRAW, 0, R.string.menuDraw);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        File file = new File(Environment.getExternalStorageDirectory(), PATTERN_FILE);
+        switch (item.getItemId()) {
+            case MENU_LOAD:
+                loadPattern(file);
+                return true;
+            case MENU_SAVE:
+                savePattern(file);
+                return true;
+            case MENU_METRICS:
+                //the overlay only, switching it off stops the measuring too
+                gv.setMetricsEnabled(!gv.isMetricsOverlay());
+                gv.setMetricsOverlay(gv.isMetricsEnabled());
+                return true;
+            case MENU_ZOOM_IN:
+                gv.zoomBy(2);
+                return true;
+            case MENU_ZOOM_OUT:
+                gv.zoomBy(0.5f);
+                return true;
+            case MENU_DRAW:
+                gv.setDrawMode(!gv.isDrawMode());
+                lblInfo.setText(gv.isDrawMode() ? "Drag to draw" : "Drag to move");
+                return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    private void loadPattern(File file) {
+        try {
+            Reader in = new FileReader(file);
+            try {
+                gv.loadPattern(in);
+            } finally {
+                in.close();
+            }
+            lblInfo.setText("Loaded " + file.getName());
+        } catch (IOException e) {
+            lblInfo.setText("Loading failed: " + e.getMessage());
+        }
+    }
+
+    private void savePattern(File file) {
+        try {
+            Writer out = new FileWriter(file);
+            try {
+                gv.savePattern(out, PatternFormat.RLE);
+            } finally {
+                out.close();
+            }
+            lblInfo.setText("Saved " + file.getName());
+        } catch (IOException e) {
+            lblInfo.setText("Saving failed: " + e.getMessage());
+        }
+    }
+
+    public void onGameLoop(GameView gv, GameStats stats) {
+        int length = Chars.append(info, 0, GENERATION);
+        length = Chars.append(info, length, stats.getGeneration());
+        if (stats.getGenerationsPerSecond() > 0)
+        {
+            info[length++] = ' ';
+            info[length++] = '(';
+            length = Chars.append(info, length, stats.getGenerationsPerSecond());
+            length = Chars.append(info, length, PER_SECOND);
+        }
+        lblInfo.setText(info, 0, length);
     }
 
     public void onGameStarted(GameView gv) {
@@ -120,6 +263,9 @@ public class MainActivity extends Activity implements GameViewEventHandler.OnGam
     }
 
     public void onGameStopped(GameView gv) {
-        lblInfo.setText(String.format("Generation: %d - Game stopped", gv.getGeneration()));
+        if (gv.getCyclePeriod() > 0)
+            lblInfo.setText(String.format("Generation: %d - Game stopped, period %d", gv.getGeneration(), gv.getCyclePeriod()));
+        else
+            lblInfo.setText(String.format("Generation: %d - Game stopped", gv.getGeneration()));
     }
 }
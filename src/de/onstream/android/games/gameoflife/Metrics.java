@@ -0,0 +1,106 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife;
+
+/**
+ * Where the time goes, for finding out why a frame was slow. GameView
+ * records into one of these when metrics are enabled (see
+ * GameView.setMetricsEnabled()) and hands a copy to the metrics listener
+ * together with the game loop events.
+ *
+ * The times are in nanoseconds:
+ *  step   - LifeEngine.step(1) on the simulation thread
+ *  render - bringing the renderer's cached frame up to date
+ *  blit   - copying that frame onto the screen
+ * The counts are per generation, except generations per second, which is
+ * sampled once per game loop event.
+ *
+ * Everything is recorded into preallocated histograms, nothing is allocated
+ * while the game runs.
+ */
+public class Metrics
+{
+    final Histogram step         = new Histogram();
+    final Histogram render       = new Histogram();
+    final Histogram blit         = new Histogram();
+    final Histogram population   = new Histogram();
+    final Histogram changedCells = new Histogram();
+    final Histogram generationsPerSecond = new Histogram();
+
+    public Histogram getStepTime() {
+        return step;
+    }
+
+    public Histogram getRenderTime() {
+        return render;
+    }
+
+    public Histogram getBlitTime() {
+        return blit;
+    }
+
+    public Histogram getPopulation() {
+        return population;
+    }
+
+    //a generation that changed more cells than the change set holds counts as the whole board
+    public Histogram getChangedCells() {
+        return changedCells;
+    }
+
+    public Histogram getGenerationsPerSecond() {
+        return generationsPerSecond;
+    }
+
+    public void reset() {
+        step.reset();
+        render.reset();
+        blit.reset();
+        population.reset();
+        changedCells.reset();
+        generationsPerSecond.reset();
+    }
+
+    void copyFrom(Metrics other) {
+        step.copyFrom(other.step);
+        render.copyFrom(other.render);
+        blit.copyFrom(other.blit);
+        population.copyFrom(other.population);
+        changedCells.copyFrom(other.changedCells);
+        generationsPerSecond.copyFrom(other.generationsPerSecond);
+    }
+}
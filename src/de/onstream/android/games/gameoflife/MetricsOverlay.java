@@ -0,0 +1,100 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+/**
+ * Draws the metrics in the upper left corner of the board, one line per
+ * histogram: the last value, the median, the 99th percentile and the
+ * maximum, times in microseconds. The text is written into preallocated
+ * char arrays, so the overlay doesn't allocate while drawing either.
+ */
+class MetricsOverlay
+{
+    private static final float TEXT_SIZE = 12;
+
+    private static final char[][] LABELS = {
+        "step us   ".toCharArray(),
+        "render us ".toCharArray(),
+        "blit us   ".toCharArray(),
+        "population ".toCharArray(),
+        "changed   ".toCharArray(),
+        "gen/s     ".toCharArray()
+    };
+    private static final char[] P50 = " p50 ".toCharArray();
+    private static final char[] P99 = " p99 ".toCharArray();
+    private static final char[] MAX = " max ".toCharArray();
+
+    private final char[] line = new char[128];
+    private final Paint text = new Paint();
+    private final Paint background = new Paint();
+
+    MetricsOverlay() {
+        text.setColor(Color.BLACK);
+        text.setTextSize(TEXT_SIZE);
+        text.setAntiAlias(true);
+        background.setStyle(Paint.Style.FILL);
+        background.setColor(0xc0ffffff); //the board shines through a bit
+    }
+
+    void draw(Canvas canvas, Metrics m) {
+        float height = text.getTextSize() + 2;
+        canvas.drawRect(0, 0, 22 * TEXT_SIZE, LABELS.length * height + 4, background);
+        drawLine(canvas, 0, m.getStepTime(), 1000, height);
+        drawLine(canvas, 1, m.getRenderTime(), 1000, height);
+        drawLine(canvas, 2, m.getBlitTime(), 1000, height);
+        drawLine(canvas, 3, m.getPopulation(), 1, height);
+        drawLine(canvas, 4, m.getChangedCells(), 1, height);
+        drawLine(canvas, 5, m.getGenerationsPerSecond(), 1, height);
+    }
+
+    //values are divided by unit, to show nanoseconds as microseconds
+    private void drawLine(Canvas canvas, int n, Histogram h, int unit, float height) {
+        int length = Chars.append(line, 0, LABELS[n]);
+        length = Chars.append(line, length, h.getLast() / unit);
+        length = Chars.append(line, length, P50);
+        length = Chars.append(line, length, h.getPercentile(50) / unit);
+        length = Chars.append(line, length, P99);
+        length = Chars.append(line, length, h.getPercentile(99) / unit);
+        length = Chars.append(line, length, MAX);
+        length = Chars.append(line, length, h.getMax() / unit);
+        canvas.drawText(line, 0, length, 2, (n + 1) * height, text);
+    }
+}
@@ -17,12 +17,13 @@ public final class R {
         public static final int icon=0x7f020000;
     }
     public static final class id {
+        public static final int btnBack=0x7f070006;
         public static final int btnReset=0x7f070005;
         public static final int btnStart=0x7f070003;
         public static final int btnStop=0x7f070004;
         public static final int buttonsLayout=0x7f070002;
-        public static final int imageViewLayout=0x7f070007;
-        public static final int lblInfo=0x7f070006;
+        public static final int imageViewLayout=0x7f070008;
+        public static final int lblInfo=0x7f070007;
         public static final int lblMain=0x7f070001;
         public static final int mainView=0x7f070000;
     }
@@ -32,11 +33,18 @@ public final class R {
     public static final class string {
         public static final int alive=0x7f050003;
         public static final int app_name=0x7f050000;
+        public static final int btnBack=0x7f050007;
         public static final int btnReset=0x7f050006;
         public static final int btnStart=0x7f050004;
         public static final int btnStop=0x7f050005;
         public static final int dead=0x7f050002;
         public static final int generation=0x7f050001;
+        public static final int menuDraw=0x7f05000d;
+        public static final int menuLoad=0x7f050008;
+        public static final int menuMetrics=0x7f05000a;
+        public static final int menuSave=0x7f050009;
+        public static final int menuZoomIn=0x7f05000b;
+        public static final int menuZoomOut=0x7f05000c;
     }
     public static final class style {
         public static final int MyDefaultTextAppearance=0x7f060002;
@@ -0,0 +1,140 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife;
+
+import de.onstream.android.games.gameoflife.engine.LifeEngine;
+
+/**
+ * Calculates generations in the background, so the simulation no longer
+ * runs at the speed of onDraw(). The thread steps the engine at the
+ * configured number of generations per second (or as fast as it can if
+ * that is 0) and hands the results to GameView, which only draws the latest
+ * completed snapshot. It stops once the board is dead or stuck, or when
+ * GameView wants it to, e.g. because the board started to oscillate.
+ *
+ * Cells the user draws meanwhile wait in GameView's edit queue. The thread
+ * applies them right before each generation, and while it waits for the
+ * next one editsQueued() wakes it up to apply them straight away.
+ */
+class SimulationThread extends Thread
+{
+    private final GameView view;
+    private final LifeEngine engine;
+    private volatile boolean finished = false;
+
+    private final Object wakeUp = new Object();
+    private boolean edits = false; //guarded by wakeUp
+
+    SimulationThread(GameView view, LifeEngine engine) {
+        super(Constants.NAME + "-simulation");
+        this.view = view;
+        this.engine = engine;
+    }
+
+    /**
+     * Asks the thread to stop after the current generation. Use join() to
+     * wait for it.
+     */
+    void finish() {
+        finished = true;
+        interrupt();
+    }
+
+    //there is something in the edit queue, don't wait for the next generation to apply it
+    void editsQueued() {
+        synchronized (wakeUp) {
+            edits = true;
+            wakeUp.notify();
+        }
+    }
+
+    @Override
+    public void run() {
+        long due = System.nanoTime();
+        while (!finished)
+        {
+            boolean keepGoing;
+            synchronized (engine) {
+                boolean measure = view.isMetricsEnabled();
+                view.applyEdits(false);
+                long start = measure ? System.nanoTime() : 0;
+                //nothing changed => we are done, an empty board only is with
+                //rules that don't give birth without neighbours (B0)
+                keepGoing = engine.step(1) > 0;
+                if (keepGoing)
+                    keepGoing = view.onGenerationCalculated(measure ? System.nanoTime() - start : -1);
+            }
+            if (!keepGoing)
+            {
+                view.onSimulationFinished();
+                return;
+            }
+
+            int gps = view.getGenerationsPerSecond();
+            if (gps <= 0)
+                continue; //full speed
+
+            due += 1000000000L / gps;
+            long wait = due - System.nanoTime();
+            if (wait <= 0)
+            {
+                due = System.nanoTime(); //we are late, don't try to catch up
+                continue;
+            }
+            try {
+                waitUntil(due);
+            } catch (InterruptedException e) {
+                //finish() wakes us up, the loop condition takes care of the rest
+            }
+        }
+    }
+
+    //sleeps until the next generation is due, applying edits as they come in
+    private void waitUntil(long due) throws InterruptedException {
+        long wait = due - System.nanoTime();
+        while (wait > 0 && !finished)
+        {
+            synchronized (wakeUp) {
+                if (!edits)
+                    wakeUp.wait(wait / 1000000L, (int)(wait % 1000000L));
+                edits = false;
+            }
+            view.applyEdits(true);
+            wait = due - System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife;
+
+/**
+ * The part of the board that is on the screen, and how big it is drawn.
+ *
+ * At zoom 1 the whole board fits the view, cells can then be a lot smaller
+ * than a pixel on a big board. Zooming in scales that up, panning moves the
+ * window over the board, which is never moved off the screen further than
+ * necessary. Board coordinates are floats here, (originX, originY) is the
+ * point of the board in the upper left corner of the view.
+ *
+ * Cell x starts at pixel left(x) and ends where cell x + 1 starts, so the
+ * cells always line up without gaps even when they are not a whole number
+ * of pixels wide. Cells start at whole pixels of the board scaled up as a
+ * whole, the view shows that from scrollX() on, so panning moves all of
+ * them by the same number of pixels and their widths stay the same.
+ */
+class Viewport
+{
+    //cells are never drawn bigger than that
+    static final float MAX_CELL_PX = 96;
+
+    private int viewWidth  = 0;
+    private int viewHeight = 0;
+    private int boardWidth  = 1;
+    private int boardHeight = 1;
+
+    private float fitX = 1; //pixels per cell at zoom 1
+    private float fitY = 1;
+    private float zoom = 1;
+    private float scaleX = 1; //pixels per cell right now
+    private float scaleY = 1;
+    private float originX = 0;
+    private float originY = 0;
+
+    /**
+     * Starts over with the whole board in view.
+     */
+    void layout(int viewWidth, int viewHeight, int boardWidth, int boardHeight) {
+        this.viewWidth  = viewWidth;
+        this.viewHeight = viewHeight;
+        this.boardWidth  = boardWidth;
+        this.boardHeight = boardHeight;
+        fitX = (float)viewWidth / boardWidth;
+        fitY = (float)viewHeight / boardHeight;
+        zoom = 1;
+        originX = 0;
+        originY = 0;
+        update();
+    }
+
+    int getViewWidth() {
+        return viewWidth;
+    }
+
+    int getViewHeight() {
+        return viewHeight;
+    }
+
+    int getBoardWidth() {
+        return boardWidth;
+    }
+
+    int getBoardHeight() {
+        return boardHeight;
+    }
+
+    float getZoom() {
+        return zoom;
+    }
+
+    float getMaxZoom() {
+        return Math.max(1, MAX_CELL_PX / Math.min(fitX, fitY));
+    }
+
+    float getScaleX() {
+        return scaleX;
+    }
+
+    float getScaleY() {
+        return scaleY;
+    }
+
+    /**
+     * Zooms so that the board point under the pixel (focusX, focusY) stays
+     * where it is.
+     *
+     * @return false if nothing changed, because we are at a limit already
+     */
+    boolean zoomTo(float newZoom, float focusX, float focusY) {
+        newZoom = Math.max(1, Math.min(getMaxZoom(), newZoom));
+        if (newZoom == zoom) return false;
+        float x = originX + focusX / scaleX;
+        float y = originY + focusY / scaleY;
+        zoom = newZoom;
+        scaleX = fitX * zoom;
+        scaleY = fitY * zoom;
+        originX = x - focusX / scaleX;
+        originY = y - focusY / scaleY;
+        update();
+        return true;
+    }
+
+    //moves the board by that many pixels, positive values move it right and down
+    boolean pan(float dx, float dy) {
+        float x = originX;
+        float y = originY;
+        originX -= dx / scaleX;
+        originY -= dy / scaleY;
+        update();
+        return x != originX || y != originY;
+    }
+
+    private void update() {
+        scaleX = fitX * zoom;
+        scaleY = fitY * zoom;
+        originX = clamp(originX, boardWidth - viewWidth / scaleX);
+        originY = clamp(originY, boardHeight - viewHeight / scaleY);
+    }
+
+    private static float clamp(float origin, float max) {
+        if (origin > max) origin = max;
+        return origin < 0 ? 0 : origin;
+    }
+
+    //the cell under a pixel, may be outside of the board
+    int cellX(float px) {
+        //the last cell that starts at or before that pixel, the division
+        //alone may be off by one where boardPixelX() rounded the other way
+        int b = (int)Math.floor(px) + scrollX();
+        int x = (int)Math.floor(b / scaleX);
+        while (boardPixelX(x + 1) <= b) x++;
+        while (boardPixelX(x) > b) x--;
+        return x;
+    }
+
+    int cellY(float py) {
+        int b = (int)Math.floor(py) + scrollY();
+        int y = (int)Math.floor(b / scaleY);
+        while (boardPixelY(y + 1) <= b) y++;
+        while (boardPixelY(y) > b) y--;
+        return y;
+    }
+
+    //the first pixel column of cell x, may be outside of the view
+    int left(int x) {
+        return boardPixelX(x) - scrollX();
+    }
+
+    int top(int y) {
+        return boardPixelY(y) - scrollY();
+    }
+
+    //where cell x starts on the whole board scaled up, without the panning
+    int boardPixelX(int x) {
+        return (int)Math.floor(x * scaleX);
+    }
+
+    int boardPixelY(int y) {
+        return (int)Math.floor(y * scaleY);
+    }
+
+    //the pixel of the scaled up board in the upper left corner of the view
+    int scrollX() {
+        return (int)Math.floor(originX * scaleX);
+    }
+
+    int scrollY() {
+        return (int)Math.floor(originY * scaleY);
+    }
+
+    //the visible cells, at least partly, from first to last - 1
+    int firstColumn() {
+        return Math.max(0, (int)Math.floor(originX));
+    }
+
+    int lastColumn() {
+        return Math.min(boardWidth, (int)Math.ceil(originX + viewWidth / scaleX));
+    }
+
+    int firstRow() {
+        return Math.max(0, (int)Math.floor(originY));
+    }
+
+    int lastRow() {
+        return Math.min(boardHeight, (int)Math.ceil(originY + viewHeight / scaleY));
+    }
+}
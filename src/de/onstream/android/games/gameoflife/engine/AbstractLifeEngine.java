@@ -0,0 +1,208 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+/**
+ * Bookkeeping shared by all engines: board size, generation counter and
+ * population. Subclasses only have to know how to calculate one generation.
+ */
+public abstract class AbstractLifeEngine implements LifeEngine
+{
+    protected final int width;
+    protected final int height;
+
+    protected long generation = 0;
+    protected long population = 0;
+
+    protected Rule rule = Rule.CONWAY;
+    protected Topology topology = Topology.BOUNDED;
+
+    protected boolean trackChanges = false;
+    protected final ChangeSet changes;
+
+    protected AbstractLifeEngine(int width, int height) {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("invalid board size " + width + "x" + height);
+        this.width  = width;
+        this.height = height;
+        //beyond an eighth of the board it is cheaper to treat everything as changed
+        changes = new ChangeSet(Math.max(1024, (int)Math.min(Integer.MAX_VALUE, (long)width * height / 8)));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getPopulation() {
+        return population;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public void snapshot(BoardSnapshot target) {
+        target.resize(width, height);
+        long[] rows = target.getRows();
+        int words = target.getWords();
+        for (int y = 0; y < height; y++)
+            for (int w = 0; w < words; w++)
+            {
+                long bits = 0;
+                int end = Math.min(64, width - (w << 6));
+                for (int b = 0; b < end; b++)
+                    if (getCell((w << 6) + b, y))
+                        bits |= 1L << b;
+                rows[y * words + w] = bits;
+            }
+        target.setCounters(generation, population);
+        target.setRules(rule, topology);
+    }
+
+    public void restore(BoardSnapshot source) {
+        checkSize(source);
+        clear();
+        long[] rows = source.getRows();
+        int words = source.getWords();
+        for (int y = 0; y < height; y++)
+            for (int w = 0; w < words; w++)
+            {
+                long bits = rows[y * words + w];
+                while (bits != 0)
+                {
+                    int x = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    if (x >= width) break;
+                    setCell(x, y, true);
+                    bits &= bits - 1;
+                }
+            }
+        generation = source.getGeneration();
+    }
+
+    protected void checkSize(BoardSnapshot s) {
+        if (s.getWidth() != width || s.getHeight() != height)
+            throw new IllegalArgumentException("snapshot is " + s.getWidth() + "x" + s.getHeight()
+                                               + ", the board " + width + "x" + height);
+    }
+
+    public Topology getTopology() {
+        return topology;
+    }
+
+    /**
+     * Engines support BOUNDED, TORUS and KLEIN_BOTTLE unless they say otherwise.
+     */
+    public void setTopology(Topology topology) {
+        if (topology == Topology.PLANE)
+            throw new IllegalArgumentException(getClass().getSimpleName() + " has a border, it can't do " + topology);
+        if (topology == this.topology) return;
+        this.topology = topology;
+        topologyChanged();
+    }
+
+    /**
+     * Called after the topology changed.
+     */
+    protected void topologyChanged() {
+        //nothing to do by default
+    }
+
+    public Rule getRule() {
+        return rule;
+    }
+
+    public void setRule(Rule rule) {
+        if (rule.equals(this.rule)) return;
+        this.rule = rule;
+        ruleChanged();
+    }
+
+    /**
+     * Called after the rule changed, for engines that have to forget what
+     * they know about the board.
+     */
+    protected void ruleChanged() {
+        //nothing to forget by default
+    }
+
+    public void setTrackChanges(boolean track) {
+        if (track && !trackChanges)
+            changes.markFull(); //we have no idea what happened before
+        trackChanges = track;
+    }
+
+    public ChangeSet getChanges() {
+        return changes;
+    }
+
+    protected final void cellChanged(int x, int y) {
+        if (trackChanges)
+            changes.add(y * width + x);
+    }
+
+    public void dispose() {
+        //nothing to release by default
+    }
+
+    public int step(int n) {
+        int steps = 0;
+        while (steps < n)
+        {
+            if (!nextGeneration())
+                break; //nothing changed, we are stuck
+            generation++;
+            steps++;
+        }
+        return steps;
+    }
+
+    /**
+     * Calculates exactly one new generation and updates the population.
+     *
+     * @return true if at least one cell changed its state
+     */
+    protected abstract boolean nextGeneration();
+
+    protected void checkBounds(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            throw new IndexOutOfBoundsException("cell " + x + "/" + y + " is outside of the board");
+    }
+}
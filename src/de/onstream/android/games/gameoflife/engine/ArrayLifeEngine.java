@@ -0,0 +1,222 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+import java.util.Arrays;
+
+/**
+ * The original game of life implementation that used to live in
+ * GameView.calculateGeneration(). It is not fast, but it is easy to follow
+ * and serves as the reference every other engine has to agree with.
+ *
+ * Each cell is one byte, stored row by row. The board is surrounded by a
+ * halo of one cell on every side, so every cell has eight neighbours to
+ * look at and the loop never has to ask if it is at the border. Without
+ * wrapping the halo just stays dead, for the torus and the Klein bottle it
+ * is filled with the cells from the opposite edge before each generation.
+ * A 4096x4096 board needs 16 MB per buffer.
+ */
+public class ArrayLifeEngine extends AbstractLifeEngine
+{
+    private static final byte DEAD  = 0;
+    private static final byte ALIVE = 1;
+
+    private final int paddedWidth; //width + the halo left and right
+
+    private byte[] stateA; //current generation
+    private byte[] stateB; //buffer, in which we enter the new state of each cell each turn
+
+    public ArrayLifeEngine(int width, int height) {
+        super(width, height);
+        paddedWidth = width + 2;
+        if ((long)paddedWidth * (height + 2) > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("board too big: " + width + "x" + height);
+        stateA = new byte[paddedWidth * (height + 2)];
+        stateB = new byte[paddedWidth * (height + 2)];
+    }
+
+    private int index(int x, int y) {
+        return (y + 1) * paddedWidth + x + 1;
+    }
+
+    public boolean getCell(int x, int y) {
+        checkBounds(x, y);
+        return stateA[index(x, y)] == ALIVE;
+    }
+
+    public void setCell(int x, int y, boolean alive) {
+        checkBounds(x, y);
+        byte state = alive ? ALIVE : DEAD;
+        int i = index(x, y);
+        if (stateA[i] == state) return;
+        stateA[i] = state;
+        population += alive ? 1 : -1;
+        cellChanged(x, y);
+    }
+
+    public void clear() {
+        Arrays.fill(stateA, DEAD);
+        Arrays.fill(stateB, DEAD);
+        population = 0;
+        generation = 0;
+        if (trackChanges)
+            changes.markFull();
+    }
+
+    @Override
+    protected void topologyChanged() {
+        if (topology == Topology.BOUNDED)
+        {
+            //the halo may still hold wrapped cells
+            clearHalo(stateA);
+            clearHalo(stateB);
+        }
+    }
+
+    private void clearHalo(byte[] state) {
+        int last = (height + 1) * paddedWidth;
+        Arrays.fill(state, 0, paddedWidth, DEAD);
+        Arrays.fill(state, last, last + paddedWidth, DEAD);
+        for (int y = 1; y <= height; y++)
+        {
+            state[y * paddedWidth] = DEAD;
+            state[y * paddedWidth + width + 1] = DEAD;
+        }
+    }
+
+    //the edge pass: copies the cells next to each edge into the halo on the other side
+    private void wrapHalo(byte[] state) {
+        int top    = 0;
+        int first  = paddedWidth;
+        int last   = height * paddedWidth;
+        int bottom = (height + 1) * paddedWidth;
+        if (topology == Topology.KLEIN_BOTTLE)
+        {
+            for (int x = 1; x <= width; x++)
+            {
+                state[top + x]    = state[last + width + 1 - x];
+                state[bottom + x] = state[first + width + 1 - x];
+            }
+        }
+        else
+        {
+            System.arraycopy(state, last + 1, state, top + 1, width);
+            System.arraycopy(state, first + 1, state, bottom + 1, width);
+        }
+        //left and right, including the corners of the rows we just filled
+        for (int y = 0; y <= height + 1; y++)
+        {
+            int row = y * paddedWidth;
+            state[row] = state[row + width];
+            state[row + width + 1] = state[row + 1];
+        }
+    }
+
+    /**
+     * http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+     *
+     * The basic rules are as follows (quoted from above's article):
+     *
+     * The universe of the Game of Life is an infinite two-dimensional orthogonal grid of square cells,
+     * each of which is in one of two possible states, live or dead. Every cell interacts with its eight
+     * neighbors, which are the cells that are directly horizontally, vertically, or diagonally adjacent.
+     * At each step in time, the following transitions occur:
+     *
+     * 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+     * 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+     * 3. Any live cell with two or three live neighbours lives on to the next generation.
+     * 4. Any dead cell with exactly three live neighbours becomes a live cell.
+     *
+     * Those are the rules of B3/S23, the default. Any other rule set with
+     * setRule() works the same way, through its transition table.
+     *
+     * I use stateB as a buffer in which I write the new state for each cell.
+     * When I'm finished with all the calculations the two arrays swap their roles.
+     *
+     * This uses twice as much memory (cause we have 2 arrays of the same size) but on the
+     * other hand it's pretty easy to implement and I was lazy. ;-)
+     */
+    @Override
+    protected boolean nextGeneration() {
+        //if no cell changed we are stuck
+        boolean changed = false;
+        long alive = 0;
+        final boolean track = trackChanges;
+        final byte[] table = rule.getTable();
+        final byte[] a = stateA;
+        final byte[] b = stateB;
+        final int pw = paddedWidth;
+
+        if (topology != Topology.BOUNDED)
+            wrapHalo(a);
+
+        //now calculate the new states for each cell, row by row as they are stored
+        for (int j = 0; j<height; j++)
+        {
+            int row = (j + 1) * pw + 1;
+            for (int i = 0; i<width; i++)
+            {
+                int cell = row + i;
+                //Count all alive neighbours: the row above, left & right, the row below
+                int aliveNeighbours = a[cell - pw - 1] + a[cell - pw] + a[cell - pw + 1]
+                                    + a[cell - 1]                     + a[cell + 1]
+                                    + a[cell + pw - 1] + a[cell + pw] + a[cell + pw + 1];
+                //no log here, cause it's slows down the process hardcore!
+                //the rule table knows the new state, for Conway's rules 1-4 from above as for any other
+                byte state = a[cell];
+                byte next  = table[(aliveNeighbours << 1) | state];
+                b[cell] = next;
+                if (next != state)
+                {
+                    changed = true;
+                    if (track) changes.add(j * width + i);
+                }
+                alive += next;
+            }
+        }
+
+        if (!changed)
+            return false; //stateB equals stateA, nothing to do
+
+        //the new states become the current ones
+        stateA = b;
+        stateB = a;
+
+        population = alive;
+        return true;
+    }
+}
@@ -0,0 +1,543 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+import java.util.Arrays;
+
+/**
+ * Packs 64 cells into every long and calculates the next generation for all
+ * 64 of them at once with a little bitwise adder network, instead of looking
+ * at each cell on its own.
+ *
+ * Every row is stored as words+2 longs: one guard word on the left and on
+ * the right, and there is a guard row above and below the board. That way
+ * the inner loop never has to check if it is at the border. Cell x of a row
+ * lives in bit (x &amp; 63) of word (x &gt;&gt;&gt; 6). On a bounded board the guards
+ * stay empty, for the torus and the Klein bottle an edge pass copies the
+ * cells from the opposite edges into them before each generation.
+ *
+ * Only words next to a change are calculated: a second bitmap holds one bit
+ * per word which is set when the word changed in the last generation (or
+ * was edited). A word whose 3x3 word neighbourhood did not change can't
+ * change either, and because the two buffers take turns, the next buffer
+ * already holds the right value for it. A board that is dead or stable in
+ * most places costs next to nothing there.
+ */
+public class BitLifeEngine extends AbstractLifeEngine
+{
+    protected final int words;  //longs per row holding cells
+    protected final int stride; //longs per row including the two guard words
+    protected final long lastMask; //valid bits of the last word in each row
+
+    protected long[] cells;
+    protected long[] next;
+
+    //one bit per word: changed since the last generation, with a guard row above and below
+    protected final int dirtyStride;
+    protected long[] dirty;
+    protected long[] nextDirty;
+
+    private final Band all = new Band(changes);
+
+    //a horizontal stripe of rows and what came out of calculating it
+    protected static final class Band
+    {
+        int from; //first row
+        int to;   //last row + 1
+        boolean changed;
+        long populationChange;
+        final ChangeSet changes; //flipped cells, if the engine tracks them
+
+        Band(ChangeSet changes) {
+            this.changes = changes;
+        }
+
+        Band reset(int from, int to) {
+            this.from = from;
+            this.to   = to;
+            return this;
+        }
+    }
+
+    public BitLifeEngine(int width, int height) {
+        super(width, height);
+        words    = (width + 63) >>> 6;
+        stride   = words + 2;
+        lastMask = (width & 63) == 0 ? -1L : (1L << (width & 63)) - 1;
+        if ((long)stride * (height + 2) > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("board too big: " + width + "x" + height);
+        cells = new long[stride * (height + 2)];
+        next  = new long[stride * (height + 2)];
+
+        dirtyStride = (words + 63) >>> 6;
+        dirty     = new long[dirtyStride * (height + 2)];
+        nextDirty = new long[dirtyStride * (height + 2)];
+    }
+
+    protected final int index(int x, int y) {
+        return (y + 1) * stride + 1 + (x >>> 6);
+    }
+
+    public boolean getCell(int x, int y) {
+        checkBounds(x, y);
+        return (cells[index(x, y)] & (1L << x)) != 0;
+    }
+
+    public void setCell(int x, int y, boolean alive) {
+        checkBounds(x, y);
+        int i = index(x, y);
+        long bit = 1L << x; //java only uses the lower 6 bits of the shift distance
+        if (((cells[i] & bit) != 0) == alive) return;
+        cells[i] ^= bit;
+        population += alive ? 1 : -1;
+        markDirty(x, y);
+        cellChanged(x, y);
+    }
+
+    protected final void markDirty(int x, int y) {
+        int w = x >>> 6;
+        dirty[(y + 1) * dirtyStride + (w >>> 6)] |= 1L << w;
+    }
+
+    @Override
+    public void snapshot(BoardSnapshot target) {
+        //same layout, just without the guard words
+        target.resize(width, height);
+        long[] rows = target.getRows();
+        for (int y = 0; y < height; y++)
+            System.arraycopy(cells, (y + 1) * stride + 1, rows, y * words, words);
+        target.setCounters(generation, population);
+        target.setRules(rule, topology);
+    }
+
+    @Override
+    public void restore(BoardSnapshot source) {
+        checkSize(source);
+        clear();
+        long[] rows = source.getRows();
+        long count = 0;
+        for (int y = 0; y < height; y++)
+        {
+            int i = (y + 1) * stride + 1;
+            System.arraycopy(rows, y * words, cells, i, words);
+            cells[i + words - 1] &= lastMask; //never let garbage bits into the guard area
+            for (int w = 0; w < words; w++)
+                count += Long.bitCount(cells[i + w]);
+        }
+        markAllDirty(); //everything may have changed
+        population = count;
+        generation = source.getGeneration();
+    }
+
+    @Override
+    protected void ruleChanged() {
+        markAllDirty(); //a board that was stable may not be anymore
+    }
+
+    //makes the next generation look at every word
+    protected final void markAllDirty() {
+        for (int y = 0; y < height; y++)
+            for (int w = 0; w < words; w++)
+                markDirty(w << 6, y);
+    }
+
+    public void clear() {
+        Arrays.fill(cells, 0L);
+        Arrays.fill(next, 0L);
+        Arrays.fill(dirty, 0L);
+        Arrays.fill(nextDirty, 0L);
+        population = 0;
+        generation = 0;
+        if (trackChanges)
+            changes.markFull();
+    }
+
+    @Override
+    protected boolean nextGeneration() {
+        wrapEdges();
+        computeRows(all.reset(0, height));
+        return finishGeneration(all.changed, all.populationChange);
+    }
+
+    /**
+     * Writes the next state of the rows band.from..band.to-1 into the next
+     * buffer. Only reads the current buffer and only writes its own rows, so
+     * several bands can be calculated at the same time.
+     */
+    protected final void computeRows(Band band) {
+        final long[] c  = cells;
+        final long[] n  = next;
+        final long[] d  = dirty;
+        final long[] nd = nextDirty;
+        final int ds = dirtyStride;
+        final ChangeSet flipped = trackChanges ? band.changes : null;
+        final Rule r = rule;
+        final boolean conway = r == Rule.CONWAY; //parse() never makes a second B3/S23
+        //with B0 even the emptiest part of the board changes, so no word may be skipped
+        final boolean bornFromNothing = r.isBorn(0);
+        final boolean wrap = topology != Topology.BOUNDED;
+        //the last cell of a row has its right neighbours in the first word, not in the guard
+        final boolean fixLast = wrap && (width & 63) != 0;
+        final int lastK = (words - 1) >>> 6;
+        final long lastBit = 1L << ((words - 1) & 63);
+        boolean changed = false;
+        long delta = 0;
+
+        for (int y = band.from + 1; y <= band.to; y++)
+        {
+            int first = y * stride + 1;
+            int dRow  = y * ds;
+            for (int k = 0; k < ds; k++)
+                nd[dRow + k] = 0;
+
+            //a change in the first or last word reaches the other end of the row
+            boolean wrapActive = wrap
+                && (((d[dRow - ds] | d[dRow] | d[dRow + ds]) & 1L) != 0
+                    || ((d[dRow - ds + lastK] | d[dRow + lastK] | d[dRow + ds + lastK]) & lastBit) != 0);
+
+            //words that changed in this row or the ones above and below
+            long prev = 0;
+            long cur  = d[dRow - ds] | d[dRow] | d[dRow + ds];
+            for (int k = 0; k < ds; k++)
+            {
+                long following = k + 1 < ds ? d[dRow - ds + k + 1] | d[dRow + k + 1] | d[dRow + ds + k + 1] : 0;
+                //...and the words left and right of them
+                long active = cur | (cur << 1) | (cur >>> 1) | (prev >>> 63) | (following << 63);
+                if (bornFromNothing) active = -1L;
+                if (wrapActive)
+                {
+                    if (k == 0) active |= 1L;
+                    if (k == lastK) active |= lastBit;
+                }
+                if (active == -1L)
+                {
+                    //busy part of the board: just calculate all 64 words, then see what changed
+                    int start = k << 6;
+                    int end = Math.min(words, (k + 1) << 6);
+                    evolveWords(c, n, first + start, end - start, r);
+                    long changedWords = 0;
+                    for (int w = start; w < end; w++)
+                    {
+                        int i = first + w;
+                        long result = n[i];
+                        if (w == words - 1)
+                        {
+                            result &= lastMask; //keep the bits right of the board dead
+                            if (fixLast) result = wrapLastCell(c, i, result);
+                            n[i] = result;
+                        }
+                        if (result != c[i])
+                        {
+                            changedWords |= 1L << w;
+                            delta += Long.bitCount(result) - Long.bitCount(c[i]);
+                            if (flipped != null) record(flipped, y, w, result ^ c[i]);
+                        }
+                    }
+                    nd[dRow + k] = changedWords;
+                    if (changedWords != 0) changed = true;
+                }
+                else
+                {
+                    while (active != 0)
+                    {
+                        int bit = Long.numberOfTrailingZeros(active);
+                        int w = (k << 6) + bit;
+                        if (w >= words) break; //only guard bits left
+                        active &= active - 1;
+
+                        int i = first + w;
+                        long result = conway ? evolve(c, i, stride) : evolve(c, i, stride, r);
+                        if (w == words - 1)
+                        {
+                            result &= lastMask; //keep the bits right of the board dead
+                            if (fixLast) result = wrapLastCell(c, i, result);
+                        }
+                        n[i] = result;
+                        if (result != c[i])
+                        {
+                            changed = true;
+                            nd[dRow + k] |= 1L << bit;
+                            delta += Long.bitCount(result) - Long.bitCount(c[i]);
+                            if (flipped != null) record(flipped, y, w, result ^ c[i]);
+                        }
+                    }
+                }
+                prev = cur;
+                cur  = following;
+            }
+        }
+        band.changed = changed;
+        band.populationChange = delta;
+    }
+
+    //recalculates the last cell of the row ending in word i, with its right neighbours taken from the other edge
+    private long wrapLastCell(long[] c, int i, long result) {
+        int b = (width - 1) & 63;
+        int first = i - (words - 1);
+        int count = 0;
+        for (int r = -stride; r <= stride; r += stride)
+        {
+            count += b == 0 ? (int)(c[i + r - 1] >>> 63) : (int)(c[i + r] >>> (b - 1)) & 1;
+            if (r != 0) count += (int)(c[i + r] >>> b) & 1;
+            count += (int)c[first + r] & 1;
+        }
+        int state = (int)(c[i] >>> b) & 1;
+        long bit = 1L << b;
+        return rule.getTable()[(count << 1) | state] != 0 ? result | bit : result & ~bit;
+    }
+
+    /**
+     * The edge pass: fills the guard rows and words of the current buffer with
+     * the cells on the opposite edges. Changes next to an edge are copied
+     * into the dirty guard rows, so they reach across as well.
+     */
+    protected final void wrapEdges() {
+        if (topology == Topology.BOUNDED) return;
+        final long[] c = cells;
+        boolean mirror = topology == Topology.KLEIN_BOTTLE;
+        wrapRow(c, height, 0, mirror);
+        wrapRow(c, 1, height + 1, mirror);
+        int lastWord = (width - 1) >>> 6;
+        int lastBitIndex = (width - 1) & 63;
+        for (int y = 0; y < height + 2; y++)
+        {
+            int first = y * stride + 1;
+            c[first - 1] = ((c[first + lastWord] >>> lastBitIndex) & 1) << 63;
+            c[first + words] = c[first] & 1; //only read when the board width is a multiple of 64
+        }
+        wrapDirty(height, 0, mirror);
+        wrapDirty(1, height + 1, mirror);
+    }
+
+    //copies (guard) row from into guard row to, mirrored for the Klein bottle
+    private void wrapRow(long[] c, int from, int to, boolean mirror) {
+        int src = from * stride + 1;
+        int dst = to * stride + 1;
+        if (!mirror)
+        {
+            System.arraycopy(c, src, c, dst, words);
+            return;
+        }
+        for (int w = 0; w < words; w++)
+            c[dst + w] = 0;
+        for (int w = 0; w < words; w++)
+        {
+            long bits = c[src + w];
+            while (bits != 0)
+            {
+                int x = width - 1 - ((w << 6) + Long.numberOfTrailingZeros(bits));
+                c[dst + (x >>> 6)] |= 1L << x;
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    private void wrapDirty(int from, int to, boolean mirror) {
+        int ds = dirtyStride;
+        boolean any = false;
+        for (int k = 0; k < ds; k++)
+        {
+            long bits = dirty[from * ds + k];
+            dirty[to * ds + k] = bits;
+            any |= bits != 0;
+        }
+        if (mirror && any) //the words are mirrored as well, don't bother working out which
+            for (int k = 0; k < ds; k++)
+                dirty[to * ds + k] = -1L;
+    }
+
+    @Override
+    protected void topologyChanged() {
+        //whatever the guards hold belongs to the old topology
+        clearGuards(cells);
+        clearGuards(next);
+        for (int k = 0; k < dirtyStride; k++)
+        {
+            dirty[k] = nextDirty[k] = 0;
+            dirty[(height + 1) * dirtyStride + k] = nextDirty[(height + 1) * dirtyStride + k] = 0;
+        }
+        markAllDirty();
+    }
+
+    private void clearGuards(long[] c) {
+        Arrays.fill(c, 0, stride, 0L);
+        Arrays.fill(c, (height + 1) * stride, (height + 2) * stride, 0L);
+        for (int y = 1; y <= height; y++)
+        {
+            c[y * stride] = 0;
+            c[y * stride + stride - 1] = 0;
+        }
+    }
+
+    //adds the cells of word w in (guard) row y that flipped to the change set
+    protected final void record(ChangeSet flipped, int y, int w, long diff) {
+        int base = (y - 1) * width + (w << 6);
+        while (diff != 0)
+        {
+            flipped.add(base + Long.numberOfTrailingZeros(diff));
+            diff &= diff - 1;
+        }
+    }
+
+    /**
+     * Makes the next buffer the current one, once all rows are calculated.
+     */
+    protected final boolean finishGeneration(boolean changed, long populationChange) {
+        //even if nothing changed, every word we calculated matches the current one now
+        long[] tmp = dirty;
+        dirty = nextDirty;
+        nextDirty = tmp;
+
+        if (!changed)
+            return false;
+
+        tmp = cells;
+        cells = next;
+        next  = tmp;
+        population += populationChange;
+        return true;
+    }
+
+    /**
+     * Calculates count words of a row in one go, starting with word i, and
+     * writes them to n. The busy parts of the board are calculated this way,
+     * so a subclass can work on several words at once. It is called from
+     * several threads by the parallel engine.
+     */
+    protected void evolveWords(long[] c, long[] n, int i, int count, Rule r) {
+        int end = i + count;
+        if (r == Rule.CONWAY)
+            for (; i < end; i++)
+                n[i] = evolve(c, i, stride);
+        else
+            for (; i < end; i++)
+                n[i] = evolve(c, i, stride, r);
+    }
+
+    /**
+     * Calculates the next state of the 64 cells in word i under B3/S23.
+     *
+     * The eight neighbours of every cell are lined up as eight words, so bit b
+     * of each of them is one neighbour of cell b. Adding them up with full and
+     * half adders gives the neighbour count of all 64 cells in parallel.
+     */
+    static long evolve(long[] c, int i, int stride) {
+        long up   = c[i - stride];
+        long mid  = c[i];
+        long down = c[i + stride];
+
+        long nw = (up << 1)   | (c[i - stride - 1] >>> 63);
+        long ne = (up >>> 1)  | (c[i - stride + 1] << 63);
+        long w  = (mid << 1)  | (c[i - 1] >>> 63);
+        long e  = (mid >>> 1) | (c[i + 1] << 63);
+        long sw = (down << 1) | (c[i + stride - 1] >>> 63);
+        long se = (down >>> 1)| (c[i + stride + 1] << 63);
+
+        //row above: full adder, own row: half adder, row below: full adder
+        long upSum    = nw ^ up ^ ne;
+        long upCarry  = (nw & up) | (ne & (nw ^ up));
+        long midSum   = w ^ e;
+        long midCarry = w & e;
+        long dnSum    = sw ^ down ^ se;
+        long dnCarry  = (sw & down) | (se & (sw ^ down));
+
+        //count = ones + 2 * (upCarry + midCarry + dnCarry + onesCarry)
+        long ones      = upSum ^ midSum ^ dnSum;
+        long onesCarry = (upSum & midSum) | (dnSum & (upSum ^ midSum));
+
+        //exactly one of the four twos set <=> count is 2 or 3
+        long x1 = upCarry ^ midCarry;
+        long a1 = upCarry & midCarry;
+        long x2 = dnCarry ^ onesCarry;
+        long a2 = dnCarry & onesCarry;
+        long twoOrThree = (x1 ^ x2) & ~(a1 | a2);
+
+        //3 neighbours: born or survives, 2 neighbours: only survives
+        return twoOrThree & (ones | mid);
+    }
+
+    /**
+     * The same for any rule: the neighbour count of every cell is put
+     * together as four bit planes (count = b0 + 2 b1 + 4 b2 + 8 b3), which
+     * are then compared with each count that appears in B or S.
+     */
+    static long evolve(long[] c, int i, int stride, Rule rule) {
+        long up   = c[i - stride];
+        long mid  = c[i];
+        long down = c[i + stride];
+
+        long nw = (up << 1)   | (c[i - stride - 1] >>> 63);
+        long ne = (up >>> 1)  | (c[i - stride + 1] << 63);
+        long w  = (mid << 1)  | (c[i - 1] >>> 63);
+        long e  = (mid >>> 1) | (c[i + 1] << 63);
+        long sw = (down << 1) | (c[i + stride - 1] >>> 63);
+        long se = (down >>> 1)| (c[i + stride + 1] << 63);
+
+        long upSum    = nw ^ up ^ ne;
+        long upCarry  = (nw & up) | (ne & (nw ^ up));
+        long midSum   = w ^ e;
+        long midCarry = w & e;
+        long dnSum    = sw ^ down ^ se;
+        long dnCarry  = (sw & down) | (se & (sw ^ down));
+
+        long b0        = upSum ^ midSum ^ dnSum;
+        long onesCarry = (upSum & midSum) | (dnSum & (upSum ^ midSum));
+
+        //adding up the four twos: at most two of a1, a2 and carry can be set
+        long x1 = upCarry ^ midCarry;
+        long a1 = upCarry & midCarry;
+        long x2 = dnCarry ^ onesCarry;
+        long a2 = dnCarry & onesCarry;
+        long carry = x1 & x2;
+        long b1 = x1 ^ x2;
+        long b2 = a1 ^ a2 ^ carry;
+        long b3 = a1 & a2;
+
+        final int[] counts = rule.counts;
+        long born = 0;
+        long survive = 0;
+        for (int k = 0; k < counts.length; k++)
+        {
+            int n = counts[k];
+            long match = ~(b0 ^ -(n & 1)) & ~(b1 ^ -((n >>> 1) & 1))
+                       & ~(b2 ^ -((n >>> 2) & 1)) & ~(b3 ^ -(n >>> 3));
+            born    |= match & rule.bornSelect[k];
+            survive |= match & rule.surviveSelect[k];
+        }
+        return (born & ~mid) | (survive & mid);
+    }
+}
@@ -0,0 +1,126 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+/**
+ * A copy of the board at one generation, packed 64 cells per long
+ * (cell x/y is bit x &amp; 63 of rows[y * words + (x &gt;&gt;&gt; 6)]).
+ * Engines fill it with LifeEngine.snapshot(), so the board can be drawn
+ * while the engine is already busy with the next generation.
+ *
+ * It also carries the cells that changed since the snapshot published
+ * before it, so the board can be redrawn incrementally, and the rule and
+ * topology the board runs under, so it can be saved on its own.
+ */
+public class BoardSnapshot
+{
+    private int width;
+    private int height;
+    private int words;
+    private long[] rows = new long[0];
+    private ChangeSet changes = new ChangeSet(1024);
+
+    private long generation;
+    private long population;
+    private Rule rule = Rule.CONWAY;
+    private Topology topology = Topology.BOUNDED;
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getWords() {
+        return words;
+    }
+
+    public long[] getRows() {
+        return rows;
+    }
+
+    public ChangeSet getChanges() {
+        return changes;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public long getPopulation() {
+        return population;
+    }
+
+    //null if not known, e.g. for a snapshot from an old file
+    public Rule getRule() {
+        return rule;
+    }
+
+    public Topology getTopology() {
+        return topology;
+    }
+
+    public boolean get(int x, int y) {
+        return (rows[y * words + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Prepares the snapshot for a board of the given size. The array is only
+     * reallocated if it is too small, its content is undefined afterwards.
+     */
+    public void resize(int width, int height) {
+        if (width != this.width || height != this.height)
+            changes = new ChangeSet(Math.max(1024, (int)Math.min(Integer.MAX_VALUE, (long)width * height / 8)));
+        this.width  = width;
+        this.height = height;
+        this.words  = (width + 63) >>> 6;
+        if (rows.length < words * height)
+            rows = new long[words * height];
+    }
+
+    public void setCounters(long generation, long population) {
+        this.generation = generation;
+        this.population = population;
+    }
+
+    public void setRules(Rule rule, Topology topology) {
+        this.rule = rule;
+        this.topology = topology;
+    }
+}
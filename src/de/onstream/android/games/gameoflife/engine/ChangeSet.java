@@ -0,0 +1,115 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+/**
+ * The cells that flipped, stored as board indices (y * width + x). The same
+ * cell can show up more than once if it flipped several times.
+ *
+ * A change set has a maximum size. When more cells change than that, it
+ * stops recording and is marked as full, which means "assume everything
+ * changed". That keeps the bookkeeping cheap on chaotic boards, where
+ * redrawing or rehashing everything is just as fast anyway.
+ */
+public class ChangeSet
+{
+    private final int maxSize;
+    private int[] cells = new int[64];
+    private int size = 0;
+    private boolean full = false;
+
+    public ChangeSet(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int i) {
+        return cells[i];
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public boolean isEmpty() {
+        return size == 0 && !full;
+    }
+
+    public void add(int cell) {
+        if (full) return;
+        if (size == cells.length)
+        {
+            if (size >= maxSize)
+            {
+                markFull();
+                return;
+            }
+            int[] bigger = new int[Math.min(maxSize, size * 2)];
+            System.arraycopy(cells, 0, bigger, 0, size);
+            cells = bigger;
+        }
+        cells[size++] = cell;
+    }
+
+    public void addAll(ChangeSet other) {
+        if (full) return;
+        if (other.full)
+        {
+            markFull();
+            return;
+        }
+        for (int i = 0; i < other.size; i++)
+            add(other.cells[i]);
+    }
+
+    public void markFull() {
+        full = true;
+        size = 0;
+    }
+
+    public void clear() {
+        full = false;
+        size = 0;
+    }
+}
@@ -0,0 +1,167 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+/**
+ * Hash map from packed chunk coordinates to chunks, for ChunkedLifeEngine.
+ * java.util.HashMap would box every key and allocate an entry per chunk,
+ * this one keeps the keys in a plain long[] next to the values and finds
+ * them by linear probing.
+ *
+ * Removing shifts the following entries of the probe sequence back, so
+ * there are no tombstones and lookups never get slower over time. The
+ * table doubles when it is half full and halves when it is less than an
+ * eighth full, so its size follows the number of chunks in both directions.
+ */
+class ChunkMap
+{
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private ChunkedLifeEngine.Chunk[] values; //null = empty slot
+    private int size = 0;
+    private int mask;
+
+    ChunkMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    static long key(int cx, int cy) {
+        return ((long)cy << 32) | (cx & 0xFFFFFFFFL);
+    }
+
+    int size() {
+        return size;
+    }
+
+    ChunkedLifeEngine.Chunk get(long key) {
+        int i = slot(key);
+        ChunkedLifeEngine.Chunk v;
+        while ((v = values[i]) != null)
+        {
+            if (keys[i] == key) return v;
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    //the key must not be in the map yet
+    void put(long key, ChunkedLifeEngine.Chunk chunk) {
+        if (2 * (size + 1) > values.length)
+            resize(values.length * 2);
+        insert(key, chunk);
+        size++;
+    }
+
+    void remove(long key) {
+        int i = slot(key);
+        while (values[i] != null && keys[i] != key)
+            i = (i + 1) & mask;
+        if (values[i] == null) return;
+
+        //move entries up that would no longer be found behind the gap
+        int gap = i;
+        int j = i;
+        while (true)
+        {
+            j = (j + 1) & mask;
+            if (values[j] == null) break;
+            int home = slot(keys[j]);
+            //j may fill the gap unless its home lies cyclically in (gap, j]
+            if (gap <= j ? (gap < home && home <= j) : (gap < home || home <= j))
+                continue;
+            keys[gap] = keys[j];
+            values[gap] = values[j];
+            gap = j;
+        }
+        values[gap] = null;
+        size--;
+        if (values.length > MIN_CAPACITY && 8 * size < values.length)
+            resize(values.length / 2);
+    }
+
+    void clear() {
+        allocate(MIN_CAPACITY);
+        size = 0;
+    }
+
+    /**
+     * Copies all chunks into the first size() entries of target, or of a
+     * bigger array if it doesn't fit, which is returned. The map may then be
+     * changed while going through them.
+     */
+    ChunkedLifeEngine.Chunk[] values(ChunkedLifeEngine.Chunk[] target) {
+        if (target.length < size)
+            target = new ChunkedLifeEngine.Chunk[Math.max(size, target.length * 2)];
+        int n = 0;
+        for (int i = 0; i < values.length; i++)
+            if (values[i] != null)
+                target[n++] = values[i];
+        return target;
+    }
+
+    private void insert(long key, ChunkedLifeEngine.Chunk chunk) {
+        int i = slot(key);
+        while (values[i] != null)
+            i = (i + 1) & mask;
+        keys[i] = key;
+        values[i] = chunk;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        ChunkedLifeEngine.Chunk[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++)
+            if (oldValues[i] != null)
+                insert(oldKeys[i], oldValues[i]);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new ChunkedLifeEngine.Chunk[capacity];
+        mask = capacity - 1;
+    }
+
+    //neighbouring chunks have neighbouring keys, so mix them up (splitmix64 finalizer)
+    private int slot(long key) {
+        long z = key;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return (int)(z ^ (z >>> 31)) & mask;
+    }
+}
@@ -0,0 +1,368 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+import java.util.Arrays;
+
+/**
+ * An unbounded universe made of 64x64 cell chunks. Like with HashLife the
+ * board is only a window onto it, gliders fly on beyond the edges instead
+ * of crashing into them, and getPopulation() counts the whole universe.
+ *
+ * A chunk holds one long per row, bit b of row y being the cell
+ * (64 cx + b, 64 cy + y), and is found through a ChunkMap keyed by its
+ * packed chunk coordinates. Only chunks with alive cells exist. Before each
+ * generation the empty neighbours that something could be born in (the
+ * chunk has alive cells on that edge) are created, afterwards every chunk
+ * that ended up empty is freed again. So the memory follows the pattern,
+ * about 1 KB per 64x64 cells it covers, not the size of some rectangle
+ * around it.
+ *
+ * The cells are calculated with the same bit parallel logic as the
+ * bitboard, the rows above and below and the bits left and right of a
+ * chunk come from its eight neighbours. Coordinates are ints, so the
+ * universe ends 2^31 cells away in every direction. Rules with B0 are not
+ * supported, empty space has to stay empty.
+ */
+public class ChunkedLifeEngine extends AbstractLifeEngine
+{
+    static final int SIZE = 64; //cells per chunk in each direction
+    private static final int SHIFT = 6;
+
+    //freed chunks kept around for reuse, so oscillating edges don't keep the gc busy
+    private static final int MAX_SPARE = 64;
+
+    static final class Chunk
+    {
+        int cx, cy;
+        long[] rows = new long[SIZE];
+        long[] next = new long[SIZE];
+        long population;
+
+        Chunk(int cx, int cy) {
+            this.cx = cx;
+            this.cy = cy;
+        }
+    }
+
+    private static final long[] EMPTY = new long[SIZE];
+
+    private final ChunkMap chunks = new ChunkMap();
+    private Chunk[] active = new Chunk[16];
+    private Chunk[] spare = new Chunk[MAX_SPARE];
+    private int spareCount = 0;
+    private final long[] window = new long[9]; //the 3x3 words around the one being calculated
+
+    public ChunkedLifeEngine(int width, int height) {
+        super(width, height);
+        topology = Topology.PLANE;
+    }
+
+    //the number of chunks in the universe right now
+    public int getChunkCount() {
+        return chunks.size();
+    }
+
+    //the universe has no edges, so there is nothing to wrap around
+    @Override
+    public void setTopology(Topology topology) {
+        if (topology != Topology.PLANE)
+            throw new IllegalArgumentException("ChunkedLifeEngine has no edges, it can't do " + topology);
+    }
+
+    @Override
+    public void setRule(Rule rule) {
+        if (rule.isBorn(0))
+            throw new IllegalArgumentException("ChunkedLifeEngine can't run " + rule + ", B0 fills the empty universe");
+        super.setRule(rule);
+    }
+
+    public boolean getCell(int x, int y) {
+        checkBounds(x, y);
+        Chunk c = chunks.get(ChunkMap.key(x >> SHIFT, y >> SHIFT));
+        return c != null && (c.rows[y & (SIZE - 1)] & (1L << x)) != 0;
+    }
+
+    public void setCell(int x, int y, boolean alive) {
+        checkBounds(x, y);
+        int cx = x >> SHIFT;
+        int cy = y >> SHIFT;
+        long key = ChunkMap.key(cx, cy);
+        Chunk c = chunks.get(key);
+        if (c == null)
+        {
+            if (!alive) return;
+            c = newChunk(cx, cy);
+            chunks.put(key, c);
+        }
+        int row = y & (SIZE - 1);
+        long bit = 1L << x;
+        if (((c.rows[row] & bit) != 0) == alive) return;
+        c.rows[row] ^= bit;
+        c.population += alive ? 1 : -1;
+        population += alive ? 1 : -1;
+        cellChanged(x, y);
+        if (c.population == 0)
+            free(c);
+    }
+
+    public void clear() {
+        chunks.clear();
+        for (int i = 0; i < active.length; i++)
+            active[i] = null;
+        population = 0;
+        generation = 0;
+        if (trackChanges)
+            changes.markFull();
+    }
+
+    //the window is chunk aligned, so every word of the snapshot is one chunk row
+    @Override
+    public void snapshot(BoardSnapshot target) {
+        target.resize(width, height);
+        long[] rows = target.getRows();
+        int words = target.getWords();
+        Arrays.fill(rows, 0, words * height, 0L);
+        //a sparse pattern on a big board has far fewer chunks than the board has words
+        active = chunks.values(active);
+        int count = chunks.size();
+        long lastMask = (width & (SIZE - 1)) == 0 ? -1L : (1L << width) - 1; //cells right of the board
+        for (int i = 0; i < count; i++)
+        {
+            Chunk c = active[i];
+            active[i] = null;
+            if (c.cx < 0 || c.cx >= words || c.cy < 0) continue;
+            int top = c.cy << SHIFT;
+            int end = Math.min(SIZE, height - top);
+            long mask = c.cx == words - 1 ? lastMask : -1L;
+            for (int y = 0; y < end; y++)
+                rows[(top + y) * words + c.cx] = c.rows[y] & mask;
+        }
+        target.setCounters(generation, population);
+        target.setRules(rule, topology);
+    }
+
+    //only the board is restored, whatever lived outside of it at the time is gone
+    @Override
+    public void restore(BoardSnapshot source) {
+        checkSize(source);
+        clear();
+        long[] rows = source.getRows();
+        int words = source.getWords();
+        int rest = width & (SIZE - 1);
+        for (int y = 0; y < height; y++)
+            for (int w = 0; w < words; w++)
+            {
+                long bits = rows[y * words + w];
+                if (w == words - 1 && rest != 0)
+                    bits &= (1L << rest) - 1;
+                if (bits == 0) continue;
+                long key = ChunkMap.key(w, y >> SHIFT);
+                Chunk c = chunks.get(key);
+                if (c == null)
+                {
+                    c = newChunk(w, y >> SHIFT);
+                    chunks.put(key, c);
+                }
+                c.rows[y & (SIZE - 1)] = bits;
+                int n = Long.bitCount(bits);
+                c.population += n;
+                population += n;
+            }
+        generation = source.getGeneration();
+    }
+
+    @Override
+    protected boolean nextGeneration() {
+        //the chunks we have, plus the empty ones next to them something could be born in
+        active = chunks.values(active);
+        int count = chunks.size();
+        for (int i = 0, n = count; i < n; i++)
+            count = addBorder(active[i], count);
+
+        final boolean conway = rule == Rule.CONWAY;
+        final Rule r = rule;
+        final long[] c = window;
+        boolean changed = false;
+        long alive = 0;
+        for (int i = 0; i < count; i++)
+        {
+            Chunk chunk = active[i];
+            long[] nw = rows(chunk.cx - 1, chunk.cy - 1);
+            long[] n  = rows(chunk.cx,     chunk.cy - 1);
+            long[] ne = rows(chunk.cx + 1, chunk.cy - 1);
+            long[] w  = rows(chunk.cx - 1, chunk.cy);
+            long[] m  = chunk.rows;
+            long[] e  = rows(chunk.cx + 1, chunk.cy);
+            long[] sw = rows(chunk.cx - 1, chunk.cy + 1);
+            long[] s  = rows(chunk.cx,     chunk.cy + 1);
+            long[] se = rows(chunk.cx + 1, chunk.cy + 1);
+            long[] next = chunk.next;
+            long pop = 0;
+            for (int y = 0; y < SIZE; y++)
+            {
+                if (y == 0)
+                {
+                    c[0] = nw[SIZE - 1]; c[1] = n[SIZE - 1]; c[2] = ne[SIZE - 1];
+                }
+                else
+                {
+                    c[0] = w[y - 1]; c[1] = m[y - 1]; c[2] = e[y - 1];
+                }
+                c[3] = w[y]; c[4] = m[y]; c[5] = e[y];
+                if (y == SIZE - 1)
+                {
+                    c[6] = sw[0]; c[7] = s[0]; c[8] = se[0];
+                }
+                else
+                {
+                    c[6] = w[y + 1]; c[7] = m[y + 1]; c[8] = e[y + 1];
+                }
+                //nothing alive around it, nothing can happen (no B0)
+                if ((c[0] | c[1] | c[2] | c[3] | c[4] | c[5] | c[6] | c[7] | c[8]) == 0)
+                {
+                    next[y] = 0;
+                    continue;
+                }
+                long result = conway ? BitLifeEngine.evolve(c, 4, 3) : BitLifeEngine.evolve(c, 4, 3, r);
+                next[y] = result;
+                pop += Long.bitCount(result);
+            }
+            chunk.population = pop;
+            alive += pop;
+        }
+
+        //all chunks are calculated, now the new generation can replace the old one
+        for (int i = 0; i < count; i++)
+        {
+            Chunk chunk = active[i];
+            long[] old = chunk.rows;
+            long[] next = chunk.next;
+            for (int y = 0; y < SIZE; y++)
+                if (old[y] != next[y])
+                {
+                    changed = true;
+                    if (trackChanges)
+                        recordChanges(chunk, y, old[y] ^ next[y]);
+                }
+            chunk.rows = next;
+            chunk.next = old;
+            if (chunk.population == 0)
+                free(chunk);
+            active[i] = null;
+        }
+
+        population = alive;
+        return changed;
+    }
+
+    //creates the missing neighbours of c that its edges could give birth to
+    private int addBorder(Chunk c, int count) {
+        long[] rows = c.rows;
+        long left = 0;
+        long right = 0;
+        for (int y = 0; y < SIZE; y++)
+        {
+            left  |= rows[y] & 1L;
+            right |= rows[y] >>> (SIZE - 1);
+        }
+        long top = rows[0];
+        long bottom = rows[SIZE - 1];
+        if (top != 0)    count = ensure(c.cx, c.cy - 1, count);
+        if (bottom != 0) count = ensure(c.cx, c.cy + 1, count);
+        if (left != 0)   count = ensure(c.cx - 1, c.cy, count);
+        if (right != 0)  count = ensure(c.cx + 1, c.cy, count);
+        if ((top & 1L) != 0)                 count = ensure(c.cx - 1, c.cy - 1, count);
+        if ((top >>> (SIZE - 1)) != 0)       count = ensure(c.cx + 1, c.cy - 1, count);
+        if ((bottom & 1L) != 0)              count = ensure(c.cx - 1, c.cy + 1, count);
+        if ((bottom >>> (SIZE - 1)) != 0)    count = ensure(c.cx + 1, c.cy + 1, count);
+        return count;
+    }
+
+    private int ensure(int cx, int cy, int count) {
+        long key = ChunkMap.key(cx, cy);
+        if (chunks.get(key) != null) return count;
+        Chunk c = newChunk(cx, cy);
+        chunks.put(key, c);
+        if (count == active.length)
+        {
+            Chunk[] bigger = new Chunk[count * 2];
+            System.arraycopy(active, 0, bigger, 0, count);
+            active = bigger;
+        }
+        active[count] = c;
+        return count + 1;
+    }
+
+    private long[] rows(int cx, int cy) {
+        Chunk c = chunks.get(ChunkMap.key(cx, cy));
+        return c == null ? EMPTY : c.rows;
+    }
+
+    //the flipped bits of one chunk row, as far as they are on the board
+    private void recordChanges(Chunk chunk, int y, long flipped) {
+        int by = (chunk.cy << SHIFT) + y;
+        int bx = chunk.cx << SHIFT;
+        if (by < 0 || by >= height || bx < 0 || bx >= width) return;
+        while (flipped != 0)
+        {
+            int x = bx + Long.numberOfTrailingZeros(flipped);
+            flipped &= flipped - 1;
+            if (x >= width) break;
+            changes.add(by * width + x);
+        }
+    }
+
+    private Chunk newChunk(int cx, int cy) {
+        if (spareCount > 0)
+        {
+            //empty chunks have nothing but zeros in rows, next is overwritten before it is read
+            Chunk c = spare[--spareCount];
+            spare[spareCount] = null;
+            c.cx = cx;
+            c.cy = cy;
+            return c;
+        }
+        return new Chunk(cx, cy);
+    }
+
+    private void free(Chunk c) {
+        chunks.remove(ChunkMap.key(c.cx, c.cy));
+        if (spareCount < MAX_SPARE)
+            spare[spareCount++] = c;
+    }
+}
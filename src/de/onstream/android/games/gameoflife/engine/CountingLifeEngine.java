@@ -0,0 +1,221 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the number of alive neighbours of every cell in a byte array and
+ * only touches what changes: when a cell is born or dies, its eight
+ * neighbours get their count adjusted and become candidates for the next
+ * generation. A generation is then one pass over the candidates, cells
+ * which had no change around them are never looked at.
+ *
+ * On boards where little happens this reads a tiny fraction of the memory
+ * a full recalculation needs. On a busy soup it is slower than the
+ * bitboard, every flip costs eight scattered writes.
+ *
+ * Cells are stored row by row (index = y * width + x), the same index the
+ * change set uses.
+ */
+public class CountingLifeEngine extends AbstractLifeEngine
+{
+    private final byte[] state;  //0 dead, 1 alive
+    private final byte[] count;  //alive neighbours
+    private final byte[] queued; //1 if the cell is already in the candidate list
+
+    //cells that may change in the next generation, each one at most once
+    private int[] candidates = new int[256];
+    private int candidateCount = 0;
+    //cells that change in the generation being calculated
+    private int[] flips = new int[256];
+
+    public CountingLifeEngine(int width, int height) {
+        super(width, height);
+        if ((long)width * height > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("board too big: " + width + "x" + height);
+        state  = new byte[width * height];
+        count  = new byte[width * height];
+        queued = new byte[width * height];
+    }
+
+    public boolean getCell(int x, int y) {
+        checkBounds(x, y);
+        return state[y * width + x] != 0;
+    }
+
+    public void setCell(int x, int y, boolean alive) {
+        checkBounds(x, y);
+        int i = y * width + x;
+        if ((state[i] != 0) == alive) return;
+        flip(i);
+        queue(i);
+    }
+
+    public void clear() {
+        Arrays.fill(state, (byte) 0);
+        Arrays.fill(count, (byte) 0);
+        Arrays.fill(queued, (byte) 0);
+        candidateCount = 0;
+        population = 0;
+        generation = 0;
+        if (trackChanges)
+            changes.markFull();
+    }
+
+    @Override
+    protected void ruleChanged() {
+        queueAll(); //cells that were stable may not be anymore
+    }
+
+    @Override
+    protected void topologyChanged() {
+        //the cells on the edges have different neighbours now, count everything again
+        Arrays.fill(count, (byte) 0);
+        for (int i = 0; i < state.length; i++)
+            if (state[i] != 0)
+                addToNeighbours(i, 1);
+        queueAll();
+    }
+
+    @Override
+    protected boolean nextGeneration() {
+        final byte[] s = state;
+        final byte[] n = count;
+        final byte[] table = rule.getTable();
+        //with B0 a dead cell without any neighbours comes to life, and nobody queued those
+        if (rule.isBorn(0))
+            queueAll();
+
+        //first decide, so every cell sees the counts of the old generation
+        int flipCount = 0;
+        int[] f = flips;
+        if (f.length < candidateCount)
+            f = flips = new int[Math.max(candidateCount, f.length * 2)];
+        for (int k = 0; k < candidateCount; k++)
+        {
+            int i = candidates[k];
+            queued[i] = 0;
+            if (table[(n[i] << 1) | s[i]] != s[i])
+                f[flipCount++] = i;
+        }
+        candidateCount = 0;
+        if (flipCount == 0)
+            return false;
+
+        //...then apply, which queues the candidates of the next generation
+        for (int k = 0; k < flipCount; k++)
+        {
+            int i = f[k];
+            flip(i);
+            queue(i);
+        }
+        return true;
+    }
+
+    //toggles cell i and updates the counts around it, the neighbours become candidates
+    private void flip(int i) {
+        int delta = state[i] == 0 ? 1 : -1;
+        state[i] ^= 1;
+        population += delta;
+        if (trackChanges)
+            changes.add(i);
+        addToNeighbours(i, delta);
+    }
+
+    private void addToNeighbours(int i, int delta) {
+        int x = i % width;
+        int y = i / width;
+        if (x > 0 && x < width - 1 && y > 0 && y < height - 1)
+        {
+            //inside: no edge to worry about
+            int w = width;
+            touch(i - w - 1, delta);
+            touch(i - w,     delta);
+            touch(i - w + 1, delta);
+            touch(i - 1,     delta);
+            touch(i + 1,     delta);
+            touch(i + w - 1, delta);
+            touch(i + w,     delta);
+            touch(i + w + 1, delta);
+            return;
+        }
+        for (int dy = -1; dy <= 1; dy++)
+            for (int dx = -1; dx <= 1; dx++)
+            {
+                if (dx == 0 && dy == 0) continue;
+                int nx = x + dx;
+                int ny = y + dy;
+                if (topology == Topology.BOUNDED)
+                {
+                    if (nx < 0 || nx >= width || ny < 0 || ny >= height) continue;
+                }
+                else
+                {
+                    if (ny < 0 || ny >= height)
+                    {
+                        ny = (ny + height) % height;
+                        if (topology == Topology.KLEIN_BOTTLE) nx = width - 1 - nx;
+                    }
+                    nx = (nx + width) % width;
+                }
+                touch(ny * width + nx, delta);
+            }
+    }
+
+    private void touch(int i, int delta) {
+        count[i] += delta;
+        queue(i);
+    }
+
+    private void queue(int i) {
+        if (queued[i] != 0) return;
+        queued[i] = 1;
+        if (candidateCount == candidates.length)
+        {
+            int[] bigger = new int[Math.min(state.length, candidates.length * 2)];
+            System.arraycopy(candidates, 0, bigger, 0, candidateCount);
+            candidates = bigger;
+        }
+        candidates[candidateCount++] = i;
+    }
+
+    private void queueAll() {
+        for (int i = 0; i < state.length; i++)
+            queue(i);
+    }
+}
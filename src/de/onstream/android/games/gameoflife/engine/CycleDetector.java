@@ -0,0 +1,227 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+import java.util.Arrays;
+
+/**
+ * Finds out when a board starts repeating itself, e.g. a blinker or any
+ * other oscillator, which the engines can't tell from a board that is still
+ * going somewhere.
+ *
+ * Every cell has a pseudo random 64 bit key, the board hash is the XOR of
+ * the keys of all alive cells (Zobrist hashing). Flipping a cell just XORs
+ * its key in or out, so the hash is updated from the change set of each
+ * generation. The hashes of the last historySize generations are kept in a
+ * ring buffer with an open addressing index on top of it, which finds every
+ * generation still in the ring, even if their hashes land on the same
+ * slot. A generation leaves the index when the ring drops it. If the current
+ * hash (and population) matches an earlier generation, the board is in a
+ * cycle whose period is the distance between the two.
+ *
+ * On a Topology.PLANE board the engine only shows a window onto a universe
+ * that goes on outside of it, e.g. a glider that left the window still
+ * changes things. The hash can't see that, so for those engines the
+ * detector never reports a cycle.
+ */
+public class CycleDetector
+{
+    public static final int DEFAULT_HISTORY = 1024;
+
+    private final long seed;
+    private final long[] hashes;
+    private final long[] generations;
+    private final long[] populations;
+    private final int[] index; //ring position + 1 by hash, linear probing, 0 = empty
+    private int next = 0;
+    private int size = 0; //generations in the ring
+
+    private boolean valid = false; //hash matches the board
+    private long hash;
+    private long period = 0;
+    private long cycleStart = -1;
+
+    private final BoardSnapshot scratch = new BoardSnapshot();
+
+    public CycleDetector() {
+        this(DEFAULT_HISTORY, 0x5DEECE66DL);
+    }
+
+    public CycleDetector(int historySize, long seed) {
+        if (historySize <= 0)
+            throw new IllegalArgumentException("historySize must be positive");
+        this.seed = seed;
+        hashes      = new long[historySize];
+        generations = new long[historySize];
+        populations = new long[historySize];
+        //at most a quarter full, the probes stay short
+        int slots = 1;
+        while (slots < historySize * 4)
+            slots <<= 1;
+        index = new int[slots];
+    }
+
+    /**
+     * Forgets everything, e.g. because the user edited the board.
+     */
+    public void reset() {
+        Arrays.fill(index, 0);
+        next = 0;
+        size = 0;
+        valid = false;
+        period = 0;
+        cycleStart = -1;
+    }
+
+    /**
+     * @return the length of the cycle the board is in, 0 if there is none (yet)
+     */
+    public long getPeriod() {
+        return period;
+    }
+
+    /**
+     * @return the first generation of the cycle that is still in the history
+     */
+    public long getCycleStart() {
+        return cycleStart;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Feeds one generation to the detector. Call it after every generation
+     * with the cells that generation flipped.
+     *
+     * @return true if the board is in a cycle, never for Topology.PLANE
+     */
+    public boolean update(LifeEngine engine, ChangeSet flipped) {
+        if (engine.getTopology() == Topology.PLANE)
+        {
+            valid = false; //in case the topology changes
+            return false;
+        }
+        if (!valid || flipped.isFull())
+            rehash(engine);
+        else
+            for (int i = 0; i < flipped.size(); i++)
+                hash ^= key(flipped.get(i));
+
+        long generation = engine.getGeneration();
+        long population = engine.getPopulation();
+
+        //the oldest generation makes room
+        if (size == hashes.length)
+            unindex(next);
+        else
+            size++;
+
+        int mask = index.length - 1;
+        int slot = (int)mix(hash) & mask;
+        long latest = -1;
+        for (int p; (p = index[slot] - 1) >= 0; slot = (slot + 1) & mask)
+            if (hashes[p] == hash && populations[p] == population && generations[p] < generation)
+                latest = Math.max(latest, generations[p]);
+        if (latest >= 0)
+        {
+            period = generation - latest;
+            cycleStart = latest;
+        }
+
+        //slot is the first free one after the run
+        hashes[next] = hash;
+        generations[next] = generation;
+        populations[next] = population;
+        index[slot] = next + 1;
+        next = (next + 1) % hashes.length;
+        return period > 0;
+    }
+
+    //takes ring position p out of the index
+    private void unindex(int p) {
+        int mask = index.length - 1;
+        int hole = (int)mix(hashes[p]) & mask;
+        while (index[hole] != p + 1)
+            hole = (hole + 1) & mask;
+        //move the entries after it back, a lookup must not stop at the hole
+        //before it gets to them
+        for (int slot = (hole + 1) & mask; index[slot] != 0; slot = (slot + 1) & mask)
+        {
+            int home = (int)mix(hashes[index[slot] - 1]) & mask;
+            if (((slot - home) & mask) >= ((slot - hole) & mask))
+            {
+                index[hole] = index[slot];
+                hole = slot;
+            }
+        }
+        index[hole] = 0;
+    }
+
+    //calculate the hash from scratch
+    private void rehash(LifeEngine engine) {
+        engine.snapshot(scratch);
+        long[] rows = scratch.getRows();
+        int words = scratch.getWords();
+        int width = scratch.getWidth();
+        long h = 0;
+        for (int y = 0; y < scratch.getHeight(); y++)
+            for (int w = 0; w < words; w++)
+            {
+                long bits = rows[y * words + w];
+                while (bits != 0)
+                {
+                    h ^= key(y * width + (w << 6) + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+        hash = h;
+        valid = true;
+    }
+
+    private long key(int cell) {
+        return mix(cell * 0x9E3779B97F4A7C15L + seed);
+    }
+
+    //the splitmix64 finalizer, good enough to make every key look random
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
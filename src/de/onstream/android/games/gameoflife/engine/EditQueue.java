@@ -0,0 +1,209 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+/**
+ * Cell edits from one thread for the engine of another one, e.g. what the
+ * user draws while the simulation runs. The UI thread puts edits in and
+ * returns right away, the simulation applies them between two generations.
+ * Nobody ever waits for a lock.
+ *
+ * It is a ring buffer with one producer and one consumer. Each side only
+ * writes its own index and publishes it through a volatile write after the
+ * slot is written or read, that's all the ordering it needs. There may be
+ * more than one consumer thread over time, as long as they never drain at
+ * the same time, e.g. because they all hold the engine lock while doing it.
+ *
+ * Rule and topology changes go through the queue as well, in order with
+ * the cell edits around them. An engine that can't run the new rule or
+ * topology keeps its own.
+ *
+ * The ring doesn't grow. When it is full, offer() says so, add() puts the
+ * edit aside in an overflow buffer that only the producer touches. flush()
+ * moves those into the ring once the consumer made room again, nobody has
+ * to wait for anybody.
+ */
+public class EditQueue
+{
+    //what an edit does to its cell
+    public static final int DEAD   = 0;
+    public static final int ALIVE  = 1;
+    public static final int TOGGLE = 2;
+    //no cell edit, x says what is set and y the new value
+    private static final int SETTING = 3;
+    private static final int RULE     = 0; //birth mask << 9 | survival mask
+    private static final int TOPOLOGY = 1; //Topology.ordinal()
+
+    private final long[] edits; //x << 34 | y << 2 | op
+    private final int mask;
+    private volatile int head = 0; //the next slot to fill, only the producer moves it
+    private volatile int tail = 0; //the next slot to apply, only the consumer moves it
+
+    //producer only: edits that didn't fit, in the order they came in
+    private long[] overflow = new long[0];
+    private int overflowStart = 0;
+    private int overflowEnd = 0;
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public EditQueue(int capacity) {
+        int size = 2;
+        while (size < capacity)
+            size <<= 1;
+        edits = new long[size];
+        mask = size - 1;
+    }
+
+    public int getCapacity() {
+        return edits.length;
+    }
+
+    public boolean isEmpty() {
+        return head == tail;
+    }
+
+    /**
+     * Producer only.
+     *
+     * @param op DEAD, ALIVE or TOGGLE
+     * @return false if the queue is full, the edit was not added
+     */
+    public boolean offer(int x, int y, int op) {
+        return offer((long)x << 34 | ((long)y & 0xffffffffL) << 2 | op);
+    }
+
+    private boolean offer(long edit) {
+        int h = head;
+        if (h - tail == edits.length) return false;
+        edits[h & mask] = edit;
+        head = h + 1;
+        return true;
+    }
+
+    /**
+     * Producer only. Like offer(), but an edit that doesn't fit waits in the
+     * overflow buffer for the next flush(). Edits never overtake each other.
+     */
+    public void add(int x, int y, int op) {
+        long edit = (long)x << 34 | ((long)y & 0xffffffffL) << 2 | op;
+        if (overflowStart == overflowEnd && offer(edit)) return;
+        if (overflowEnd == overflow.length)
+        {
+            //move what is left to the front, or make room
+            int n = overflowEnd - overflowStart;
+            long[] target = n < overflow.length / 2 ? overflow : new long[Math.max(64, overflow.length * 2)];
+            System.arraycopy(overflow, overflowStart, target, 0, n);
+            overflow = target;
+            overflowStart = 0;
+            overflowEnd = n;
+        }
+        overflow[overflowEnd++] = edit;
+    }
+
+    /**
+     * Producer only. Like add(), for the rule.
+     */
+    public void addRule(Rule rule) {
+        add(RULE, rule.getBirthMask() << 9 | rule.getSurvivalMask(), SETTING);
+    }
+
+    /**
+     * Producer only. Like add(), for the topology.
+     */
+    public void addTopology(Topology topology) {
+        add(TOPOLOGY, topology.ordinal(), SETTING);
+    }
+
+    /**
+     * Producer only. Moves as many overflowing edits into the ring as fit.
+     *
+     * @return true if nothing is left in the overflow buffer
+     */
+    public boolean flush() {
+        while (overflowStart < overflowEnd && offer(overflow[overflowStart]))
+            overflowStart++;
+        if (overflowStart < overflowEnd) return false;
+        overflowStart = overflowEnd = 0;
+        return true;
+    }
+
+    /**
+     * Consumer only. Applies every edit that was offered so far. Edits for
+     * cells that are not on the board (anymore) are dropped.
+     *
+     * @return how many edits were taken out of the queue
+     */
+    public int drainTo(LifeEngine e) {
+        int t = tail;
+        int h = head;
+        int width  = e.getWidth();
+        int height = e.getHeight();
+        for (int i = t; i != h; i++)
+        {
+            long edit = edits[i & mask];
+            int x = (int)(edit >>> 34);
+            int y = (int)(edit >>> 2);
+            int op = (int)edit & 3;
+            if (op == SETTING)
+            {
+                set(e, x, y);
+                continue;
+            }
+            if (x >= width || y < 0 || y >= height) continue;
+            e.setCell(x, y, op == TOGGLE ? !e.getCell(x, y) : op == ALIVE);
+        }
+        tail = h;
+        return h - t;
+    }
+
+    private static void set(LifeEngine e, int what, int value) {
+        try {
+            if (what == RULE)
+                e.setRule(Rule.fromMasks(value >>> 9, value & 0x1ff));
+            else
+                e.setTopology(Topology.values()[value]);
+        } catch (IllegalArgumentException ex) {
+            //the engine can't do that, it goes on with what it has
+        }
+    }
+
+    //consumer only, drops every edit that was offered so far
+    public void clear() {
+        tail = head;
+    }
+}
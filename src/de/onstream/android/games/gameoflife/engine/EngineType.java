@@ -0,0 +1,94 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+/**
+ * All engines GameView knows how to create.
+ */
+public enum EngineType
+{
+    /** the original, cell by cell implementation */
+    ARRAY {
+        public LifeEngine create(int width, int height) {
+            return new ArrayLifeEngine(width, height);
+        }
+    },
+    /** neighbour counts kept up to date, only cells next to a change are looked at */
+    COUNTING {
+        public LifeEngine create(int width, int height) {
+            return new CountingLifeEngine(width, height);
+        }
+    },
+    /** 64 cells per long, calculated with bitwise logic */
+    BITBOARD {
+        public LifeEngine create(int width, int height) {
+            return new BitLifeEngine(width, height);
+        }
+    },
+    /** 2x2 tiles looked up by their 4x4 neighbourhood, for dense chaotic boards */
+    TILE {
+        public LifeEngine create(int width, int height) {
+            return new TileLifeEngine(width, height);
+        }
+    },
+    /** the bitboard on SIMD lanes where the JVM has the Vector API, the plain bitboard elsewhere */
+    VECTOR {
+        public LifeEngine create(int width, int height) {
+            return VectorSupport.create(width, height);
+        }
+    },
+    /** the bitboard, with horizontal bands calculated on all cores */
+    PARALLEL_BITBOARD {
+        public LifeEngine create(int width, int height) {
+            return new ParallelBitLifeEngine(width, height);
+        }
+    },
+    /** 64x64 chunks created as the pattern grows, no edges */
+    CHUNKED {
+        public LifeEngine create(int width, int height) {
+            return new ChunkedLifeEngine(width, height);
+        }
+    },
+    /** quadtree with memoized futures, for very long runs */
+    HASHLIFE {
+        public LifeEngine create(int width, int height) {
+            return new HashLifeEngine(width, height);
+        }
+    };
+
+    public abstract LifeEngine create(int width, int height);
+}
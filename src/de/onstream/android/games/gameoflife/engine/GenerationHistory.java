@@ -0,0 +1,360 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+/**
+ * Remembers the last generations of a board, so the game can go back in
+ * time. Every few generations a full keyframe of the board is stored, the
+ * generations in between only keep the cells that flipped. Going from a
+ * keyframe to any later generation means flipping those cells again, at
+ * most keyframeInterval - 1 deltas.
+ *
+ * The deltas live in one ring of ints and the bookkeeping in a ring of
+ * frames, so recording a generation doesn't allocate anything except the
+ * occasional keyframe. When the memory budget is used up, the oldest
+ * keyframe is dropped together with all deltas depending on it. If the
+ * newest keyframe and its deltas alone don't fit anymore, the next frame
+ * is a keyframe, however long before the interval is up, and everything
+ * before it goes.
+ *
+ * So after record() the history holds no more than the budget plus the
+ * newest delta and its bookkeeping (FRAME_BYTES), or just the newest
+ * keyframe if that alone is bigger than the budget. On top of that the
+ * rings may have up to as much unused room as they hold, getMemoryUsage()
+ * counts that too.
+ *
+ * The generations in the history are always consecutive. Recording a
+ * generation which doesn't follow the newest one starts over.
+ *
+ * Not thread safe, GameView only uses it while holding the engine lock.
+ */
+public class GenerationHistory
+{
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 64;
+
+    //what the bookkeeping of one frame costs, roughly
+    private static final int FRAME_BYTES = 8 + 8 + 8 + 4 + 4;
+
+    private final int keyframeInterval;
+    private long budget;
+
+    private int width;
+    private int height;
+    private int words;
+
+    //the frames, oldest first, starting at ring index first
+    private long[][] keyframes = new long[64][]; //null for deltas
+    private long[] populations = new long[64];
+    private long[] deltaStart  = new long[64];   //position in the delta ring
+    private int[]  deltaLength = new int[64];
+    private int first = 0;
+    private int count = 0;
+    private long oldestGeneration = 0;
+    private int sinceKeyframe = 0;
+    private boolean forceKeyframe = false;
+
+    //flipped cells (board indices) of all deltas, positions grow forever and are masked
+    private int[] data = new int[1024];
+    private long dataTail = 0;
+    private long dataHead = 0;
+
+    private long keyframeBytes = 0;
+    private long[] spare; //an evicted keyframe, reused for the next one
+    private final BoardSnapshot scratch = new BoardSnapshot();
+
+    public GenerationHistory(long budget) {
+        this(budget, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    public GenerationHistory(long budget, int keyframeInterval) {
+        if (keyframeInterval < 1)
+            throw new IllegalArgumentException("keyframe interval must be at least 1");
+        this.budget = budget;
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Changes the number of bytes the history may use. The oldest frames
+     * are dropped right away if it uses more than that. The newest keyframe
+     * always stays, even if it alone is over the budget.
+     */
+    public void setBudget(long budget) {
+        this.budget = budget;
+        evict(0);
+    }
+
+    //bytes the frames in the history take up
+    public long getRetainedBytes() {
+        return keyframeBytes + 4L * (dataHead - dataTail) + (long) FRAME_BYTES * count;
+    }
+
+    //bytes in use, including the unused part of the delta ring
+    public long getMemoryUsage() {
+        return keyframeBytes + 4L * data.length + (long) FRAME_BYTES * keyframes.length;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long getOldestGeneration() {
+        return oldestGeneration;
+    }
+
+    public long getNewestGeneration() {
+        return oldestGeneration + count - 1;
+    }
+
+    public boolean contains(long generation) {
+        return count > 0 && generation >= oldestGeneration && generation <= getNewestGeneration();
+    }
+
+    public void clear() {
+        for (int i = 0; i < count; i++)
+            keyframes[ring(i)] = null;
+        first = 0;
+        count = 0;
+        sinceKeyframe = 0;
+        forceKeyframe = false;
+        dataTail = dataHead;
+        keyframeBytes = 0;
+    }
+
+    /**
+     * The board was changed by hand, so the next generation can't be told
+     * as a delta from the newest one. Its frame will be a keyframe, the
+     * frames before it stay and show the board as it was before the edit.
+     */
+    public void forceKeyframe() {
+        forceKeyframe = true;
+    }
+
+    /**
+     * Adds the current generation of the engine. flipped must hold the cells
+     * that changed since the generation before, if it is null or full a
+     * keyframe is stored. Recording the newest generation again does nothing.
+     */
+    public void record(LifeEngine engine, ChangeSet flipped) {
+        long generation = engine.getGeneration();
+        if (count > 0 && generation == getNewestGeneration()
+                && engine.getWidth() == width && engine.getHeight() == height)
+            return;
+        if (count > 0 && (generation != getNewestGeneration() + 1
+                          || engine.getWidth() != width || engine.getHeight() != height))
+            clear(); //not the next generation, the old frames are no use anymore
+        if (count == 0)
+        {
+            width  = engine.getWidth();
+            height = engine.getHeight();
+            words  = (width + 63) >>> 6;
+            oldestGeneration = generation;
+        }
+
+        int keyWords = words * height;
+        boolean keyframe = count == 0 || flipped == null || flipped.isFull() || forceKeyframe
+                           || sinceKeyframe + 1 >= keyframeInterval
+                           || getRetainedBytes() > budget //the deltas can't go anywhere else
+                           || flipped.size() >= 2L * keyWords; //a delta would be bigger
+
+        if (keyframe)
+            evict(8L * keyWords);
+        int f = addFrame();
+        populations[f] = engine.getPopulation();
+        deltaStart[f] = dataHead;
+        if (keyframe)
+        {
+            long[] key = spare != null && spare.length == keyWords ? spare : new long[keyWords];
+            spare = null;
+            engine.snapshot(scratch);
+            System.arraycopy(scratch.getRows(), 0, key, 0, keyWords);
+            keyframes[f] = key;
+            deltaLength[f] = 0;
+            keyframeBytes += 8L * keyWords;
+            sinceKeyframe = 0;
+            forceKeyframe = false;
+        }
+        else
+        {
+            int n = flipped.size();
+            ensureData(n);
+            int mask = data.length - 1;
+            for (int i = 0; i < n; i++)
+                data[(int) ((dataHead + i) & mask)] = flipped.get(i);
+            dataHead += n;
+            keyframes[f] = null;
+            deltaLength[f] = n;
+            sinceKeyframe++;
+        }
+        evict(0);
+    }
+
+    /**
+     * Rebuilds the board of a generation in the history into target.
+     */
+    public void restore(long generation, BoardSnapshot target) {
+        if (!contains(generation))
+            throw new IllegalArgumentException("generation " + generation + " is not in the history");
+        int i = (int) (generation - oldestGeneration);
+        int k = i;
+        while (keyframes[ring(k)] == null) k--; //the oldest frame is always a keyframe
+
+        target.resize(width, height);
+        long[] rows = target.getRows();
+        System.arraycopy(keyframes[ring(k)], 0, rows, 0, words * height);
+        int mask = data.length - 1;
+        for (int j = k + 1; j <= i; j++)
+        {
+            int f = ring(j);
+            long start = deltaStart[f];
+            for (int n = 0; n < deltaLength[f]; n++)
+            {
+                int cell = data[(int) ((start + n) & mask)];
+                int x = cell % width;
+                rows[(cell / width) * words + (x >>> 6)] ^= 1L << x;
+            }
+        }
+        target.setCounters(generation, populations[ring(i)]);
+    }
+
+    /**
+     * Forgets every generation after the given one, after going back in time
+     * those will be calculated again.
+     */
+    public void truncate(long generation) {
+        if (count == 0 || generation >= getNewestGeneration()) return;
+        if (generation < oldestGeneration)
+        {
+            clear();
+            return;
+        }
+        int keep = (int) (generation - oldestGeneration) + 1;
+        for (int i = keep; i < count; i++)
+        {
+            int f = ring(i);
+            if (keyframes[f] != null)
+            {
+                keyframeBytes -= 8L * keyframes[f].length;
+                keyframes[f] = null;
+            }
+        }
+        dataHead = deltaStart[ring(keep)];
+        count = keep;
+        sinceKeyframe = 0;
+        for (int i = keep - 1; keyframes[ring(i)] == null; i--)
+            sinceKeyframe++;
+    }
+
+    private int ring(int i) {
+        return (first + i) & (keyframes.length - 1);
+    }
+
+    private int addFrame() {
+        if (count == keyframes.length)
+        {
+            int n = keyframes.length * 2;
+            long[][] k = new long[n][];
+            long[] p = new long[n];
+            long[] s = new long[n];
+            int[] l = new int[n];
+            for (int i = 0; i < count; i++)
+            {
+                int f = ring(i);
+                k[i] = keyframes[f];
+                p[i] = populations[f];
+                s[i] = deltaStart[f];
+                l[i] = deltaLength[f];
+            }
+            keyframes = k;
+            populations = p;
+            deltaStart = s;
+            deltaLength = l;
+            first = 0;
+        }
+        count++;
+        return ring(count - 1);
+    }
+
+    //makes room for n more ints in the delta ring, by dropping old frames or growing it
+    private void ensureData(int n) {
+        while (dataHead - dataTail + n > data.length)
+        {
+            long grown = 4L * data.length; //what doubling the ring adds
+            if (getMemoryUsage() + grown <= budget || !evictOldest())
+            {
+                int[] bigger = new int[data.length * 2];
+                int mask = data.length - 1;
+                int newMask = bigger.length - 1;
+                for (long p = dataTail; p < dataHead; p++)
+                    bigger[(int) (p & newMask)] = data[(int) (p & mask)];
+                data = bigger;
+            }
+        }
+    }
+
+    //drops the oldest frames until extra more bytes fit into the budget
+    private void evict(long extra) {
+        while (getMemoryUsage() + extra > budget && evictOldest())
+        {
+            //keep going
+        }
+    }
+
+    //drops the oldest keyframe and the deltas based on it, never the newest one
+    private boolean evictOldest() {
+        int end = 1;
+        while (end < count && keyframes[ring(end)] == null) end++;
+        if (end >= count) return false; //that's the newest keyframe
+        long[] key = keyframes[first];
+        keyframeBytes -= 8L * key.length;
+        spare = key;
+        for (int i = 0; i < end; i++)
+            keyframes[ring(i)] = null;
+        first = ring(end);
+        count -= end;
+        oldestGeneration += end;
+        dataTail = deltaStart[first];
+        return true;
+    }
+}
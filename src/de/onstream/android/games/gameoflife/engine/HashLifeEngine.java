@@ -0,0 +1,530 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+/**
+ * Bill Gosper's HashLife: the universe is a quadtree whose nodes are
+ * canonical (every distinct square of cells exists exactly once) and every
+ * node remembers its own future. Repeating structures in space and time are
+ * therefore only calculated once, which makes it possible to jump millions
+ * of generations ahead.
+ *
+ * Unlike the array engines the universe has no border: the board of
+ * width x height cells is only the window getCell() and setCell() look
+ * through, the pattern keeps on living outside of it. getPopulation()
+ * counts the whole universe.
+ *
+ * The node cache is bounded. Once it holds more than maxNodes nodes, all
+ * nodes that can no longer be reached from the current universe are thrown
+ * away before the next step. A single very long jump may temporarily need
+ * more nodes than that.
+ */
+public class HashLifeEngine extends AbstractLifeEngine
+{
+    public static final int DEFAULT_MAX_NODES = 1 << 19;
+
+    //the root must be at least that big, so the padding checks can look at its grandchildren
+    private static final int MIN_LEVEL = 3;
+    //coordinates are longs, so the universe can't be bigger than 2^62 cells across
+    private static final int MAX_LEVEL = 62;
+
+    static final class Node
+    {
+        final int level; //the node is 2^level cells wide and high
+        final Node nw, ne, sw, se;
+        final long population;
+        final int hash;
+
+        Node chain;       //next node in the same hash bucket
+        Node result;      //the centre of this node, resultStep generations later
+        int resultStep = -1; //log2 of the generations result is ahead of us
+        int mark;         //last garbage collection that found this node alive
+
+        //a single cell
+        Node(boolean alive) {
+            level = 0;
+            nw = ne = sw = se = null;
+            population = alive ? 1 : 0;
+            hash = alive ? 1 : 0;
+        }
+
+        Node(Node nw, Node ne, Node sw, Node se, int hash) {
+            this.level = nw.level + 1;
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+            this.population = nw.population + ne.population + sw.population + se.population;
+            this.hash = hash;
+        }
+    }
+
+    private static final Node DEAD  = new Node(false);
+    private static final Node ALIVE = new Node(true);
+
+    private final int maxNodes;
+
+    private Node[] buckets;
+    private int nodeCount = 0;
+    private int markEpoch = 0;
+    private Node[] empty = new Node[MAX_LEVEL + 1]; //canonical empty node of every level
+
+    private Node root;
+    private long originX; //board coordinates of the upper left cell of root
+    private long originY;
+
+    public HashLifeEngine(int width, int height) {
+        this(width, height, DEFAULT_MAX_NODES);
+    }
+
+    public HashLifeEngine(int width, int height, int maxNodes) {
+        super(width, height);
+        if (maxNodes <= 0)
+            throw new IllegalArgumentException("maxNodes must be positive");
+        this.maxNodes = maxNodes;
+        topology = Topology.PLANE;
+        clear();
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public void clear() {
+        int size = 1024;
+        while (size < maxNodes && size < (1 << 30))
+            size <<= 1;
+        buckets = new Node[size];
+        nodeCount = 0;
+        empty = new Node[MAX_LEVEL + 1];
+        empty[0] = DEAD;
+
+        root = empty(MIN_LEVEL);
+        originX = 0;
+        originY = 0;
+        population = 0;
+        generation = 0;
+        if (trackChanges)
+            changes.markFull();
+    }
+
+    //the universe has no edges, so there is nothing to wrap around
+    @Override
+    public void setTopology(Topology topology) {
+        if (topology != Topology.PLANE)
+            throw new IllegalArgumentException("HashLife has no edges, it can't do " + topology);
+    }
+
+    /**
+     * Rules with B0 are not supported: empty space has to stay empty, or
+     * the universe would be infinitely busy.
+     */
+    @Override
+    public void setRule(Rule rule) {
+        if (rule.isBorn(0))
+            throw new IllegalArgumentException("HashLife can't run " + rule + ", B0 fills the empty universe");
+        super.setRule(rule);
+    }
+
+    @Override
+    protected void ruleChanged() {
+        //all the futures we remember were calculated with the old rule
+        for (Node head : buckets)
+            for (Node n = head; n != null; n = n.chain)
+            {
+                n.result = null;
+                n.resultStep = -1;
+            }
+    }
+
+    public boolean getCell(int x, int y) {
+        checkBounds(x, y);
+        long size = 1L << root.level;
+        long cx = x - originX;
+        long cy = y - originY;
+        if (cx < 0 || cy < 0 || cx >= size || cy >= size)
+            return false;
+
+        Node n = root;
+        while (n.level > 0)
+        {
+            if (n.population == 0) return false;
+            long half = 1L << (n.level - 1);
+            boolean east  = cx >= half;
+            boolean south = cy >= half;
+            if (east)  cx -= half;
+            if (south) cy -= half;
+            n = south ? (east ? n.se : n.sw) : (east ? n.ne : n.nw);
+        }
+        return n == ALIVE;
+    }
+
+    public void setCell(int x, int y, boolean alive) {
+        checkBounds(x, y);
+        while (x < originX || y < originY
+               || x - originX >= (1L << root.level) || y - originY >= (1L << root.level))
+            expandRoot();
+        Node before = root;
+        root = set(root, x - originX, y - originY, alive);
+        population = root.population;
+        if (root != before)
+            cellChanged(x, y);
+    }
+
+    private Node set(Node n, long x, long y, boolean alive) {
+        if (n.level == 0)
+            return alive ? ALIVE : DEAD;
+        long half = 1L << (n.level - 1);
+        if (y < half)
+        {
+            if (x < half) return join(set(n.nw, x, y, alive), n.ne, n.sw, n.se);
+            return join(n.nw, set(n.ne, x - half, y, alive), n.sw, n.se);
+        }
+        if (x < half) return join(n.nw, n.ne, set(n.sw, x, y - half, alive), n.se);
+        return join(n.nw, n.ne, n.sw, set(n.se, x - half, y - half, alive));
+    }
+
+    /**
+     * Calculates up to n generations, in as few power of two jumps as
+     * possible. HashLife can only tell whether the universe changed over a
+     * whole jump. If a jump ends where it started, the pattern is either a
+     * still life, then we stop, or an oscillator whose period divides the
+     * jump, then the jump counts like any other.
+     */
+    @Override
+    public int step(int n) {
+        int steps = 0;
+        int maxJump = 30;
+        while (steps < n && root.population > 0)
+        {
+            //biggest power of two that still fits
+            int j = Math.min(maxJump, 31 - Integer.numberOfLeadingZeros(n - steps));
+            Node r = root;
+            long x = originX;
+            long y = originY;
+            boolean changed = advance(j);
+            if (j > 0 && isStillLife())
+            {
+                //the board froze somewhere inside the jump, which must only count
+                //the generations up to there, so find the spot with smaller jumps
+                restore(r, x, y);
+                maxJump = j - 1;
+                continue;
+            }
+            if (!changed && j == 0)
+                break; //still life, nothing will ever change again
+            generation += 1L << j;
+            steps += 1 << j;
+        }
+        return steps;
+    }
+
+    //true if the next generation is the same as this one, the universe stays where it is
+    private boolean isStillLife() {
+        if (root.population == 0)
+            return true;
+        Node r = root;
+        long x = originX;
+        long y = originY;
+        boolean track = trackChanges;
+        trackChanges = false; //nothing flips for real
+        boolean changed = advance(0);
+        trackChanges = track;
+        restore(r, x, y);
+        return !changed;
+    }
+
+    private void restore(Node r, long x, long y) {
+        root = r;
+        originX = x;
+        originY = y;
+        population = r.population;
+    }
+
+    /**
+     * Jumps 2^k generations ahead in one go.
+     */
+    public void jump(int k) {
+        if (k < 0 || k > MAX_LEVEL - 2)
+            throw new IllegalArgumentException("can't jump 2^" + k + " generations");
+        advance(k);
+        generation += 1L << k;
+    }
+
+    @Override
+    protected boolean nextGeneration() {
+        return advance(0);
+    }
+
+    /**
+     * Moves the universe 2^j generations ahead.
+     *
+     * @return false if the universe looks exactly the same afterwards
+     */
+    private boolean advance(int j) {
+        if (nodeCount > maxNodes)
+            collectGarbage();
+
+        //the pattern moves at most one cell per generation, so make sure there
+        //is enough empty space around it that nothing can get lost
+        while (root.level < j + 2 || !isPadded(root))
+            expandRoot();
+
+        long size = 1L << root.level;
+        Node before = root;
+        expandRoot();
+        root = successor(root, j);
+        //the result is the centre of the expanded root, which is the old root again
+        originX += size / 2;
+        originY += size / 2;
+        population = root.population;
+        //the quadtree doesn't know which cells flipped
+        if (trackChanges && root != before)
+            changes.markFull();
+        return root != before;
+    }
+
+    //true if all cells are in the inner half of the node
+    private static boolean isPadded(Node n) {
+        return n.nw.population == n.nw.se.se.population
+            && n.ne.population == n.ne.sw.sw.population
+            && n.sw.population == n.sw.ne.ne.population
+            && n.se.population == n.se.nw.nw.population;
+    }
+
+    //doubles the size of the universe, the current root ends up in the middle
+    private void expandRoot() {
+        int level = root.level;
+        if (level >= MAX_LEVEL)
+            throw new IllegalStateException("universe got too big");
+        Node e = empty(level - 1);
+        root = join(join(e, e, e, root.nw), join(e, e, root.ne, e),
+                    join(e, root.sw, e, e), join(root.se, e, e, e));
+        long half = 1L << (level - 1);
+        originX -= half;
+        originY -= half;
+    }
+
+    /**
+     * Returns the centre of n (one level smaller) 2^j generations in the
+     * future. j must not be bigger than n.level - 2.
+     */
+    private Node successor(Node n, int j) {
+        if (n.population == 0)
+            return empty(n.level - 1);
+        if (n.result != null && n.resultStep == j)
+            return n.result;
+
+        Node result;
+        if (n.level == 2)
+        {
+            result = life4x4(n);
+        }
+        else
+        {
+            //nine overlapping subnodes, each half as big as n
+            Node n00 = n.nw;
+            Node n01 = join(n.nw.ne, n.ne.nw, n.nw.se, n.ne.sw);
+            Node n02 = n.ne;
+            Node n10 = join(n.nw.sw, n.nw.se, n.sw.nw, n.sw.ne);
+            Node n11 = join(n.nw.se, n.ne.sw, n.sw.ne, n.se.nw);
+            Node n12 = join(n.ne.sw, n.ne.se, n.se.nw, n.se.ne);
+            Node n20 = n.sw;
+            Node n21 = join(n.sw.ne, n.se.nw, n.sw.se, n.se.sw);
+            Node n22 = n.se;
+
+            Node c00, c01, c02, c10, c11, c12, c20, c21, c22;
+            if (j == n.level - 2)
+            {
+                //full speed: both halves of the way are calculated
+                c00 = successor(n00, j - 1);
+                c01 = successor(n01, j - 1);
+                c02 = successor(n02, j - 1);
+                c10 = successor(n10, j - 1);
+                c11 = successor(n11, j - 1);
+                c12 = successor(n12, j - 1);
+                c20 = successor(n20, j - 1);
+                c21 = successor(n21, j - 1);
+                c22 = successor(n22, j - 1);
+            }
+            else
+            {
+                //smaller step: the first half of the way is just taking the centres
+                c00 = centre(n00);
+                c01 = centre(n01);
+                c02 = centre(n02);
+                c10 = centre(n10);
+                c11 = centre(n11);
+                c12 = centre(n12);
+                c20 = centre(n20);
+                c21 = centre(n21);
+                c22 = centre(n22);
+            }
+            int k = j == n.level - 2 ? j - 1 : j;
+            result = join(successor(join(c00, c01, c10, c11), k),
+                          successor(join(c01, c02, c11, c12), k),
+                          successor(join(c10, c11, c20, c21), k),
+                          successor(join(c11, c12, c21, c22), k));
+        }
+        n.result = result;
+        n.resultStep = j;
+        return result;
+    }
+
+    private Node centre(Node n) {
+        return join(n.nw.se, n.ne.sw, n.sw.ne, n.se.nw);
+    }
+
+    //brute force: the inner 2x2 cells of a 4x4 node, one generation later
+    private Node life4x4(Node n) {
+        //bit (y * 4 + x) is the cell at x/y
+        int bits = 0;
+        bits |= quad(n.nw) << 0;
+        bits |= quad(n.ne) << 2;
+        bits |= quad(n.sw) << 8;
+        bits |= quad(n.se) << 10;
+        return join(cell(bits, 1, 1), cell(bits, 2, 1), cell(bits, 1, 2), cell(bits, 2, 2));
+    }
+
+    //the four cells of a level 1 node, laid out like in life4x4()
+    private static int quad(Node n) {
+        return (n.nw == ALIVE ? 1 : 0) | (n.ne == ALIVE ? 2 : 0)
+             | (n.sw == ALIVE ? 16 : 0) | (n.se == ALIVE ? 32 : 0);
+    }
+
+    private Node cell(int bits, int x, int y) {
+        int neighbours = 0;
+        for (int dy = -1; dy <= 1; dy++)
+            for (int dx = -1; dx <= 1; dx++)
+                if ((dx != 0 || dy != 0) && (bits & (1 << ((y + dy) * 4 + x + dx))) != 0)
+                    neighbours++;
+        int state = (bits >>> (y * 4 + x)) & 1;
+        return rule.getTable()[(neighbours << 1) | state] != 0 ? ALIVE : DEAD;
+    }
+
+    private Node empty(int level) {
+        if (empty[level] == null)
+        {
+            Node e = empty(level - 1);
+            empty[level] = join(e, e, e, e);
+        }
+        return empty[level];
+    }
+
+    //returns the one and only node with these four children
+    private Node join(Node nw, Node ne, Node sw, Node se) {
+        int h = nw.hash;
+        h = h * 0x9E3779B1 + ne.hash;
+        h = h * 0x9E3779B1 + sw.hash;
+        h = h * 0x9E3779B1 + se.hash;
+        h = h * 0x9E3779B1 + nw.level;
+        h ^= h >>> 16;
+
+        int b = h & (buckets.length - 1);
+        for (Node n = buckets[b]; n != null; n = n.chain)
+            if (n.nw == nw && n.ne == ne && n.sw == sw && n.se == se)
+                return n;
+
+        Node n = new Node(nw, ne, sw, se, h);
+        n.chain = buckets[b];
+        buckets[b] = n;
+        if (++nodeCount > buckets.length)
+            rehash(buckets.length << 1);
+        return n;
+    }
+
+    private void rehash(int size) {
+        Node[] old = buckets;
+        buckets = new Node[size];
+        for (Node head : old)
+        {
+            Node n = head;
+            while (n != null)
+            {
+                Node following = n.chain;
+                int b = n.hash & (size - 1);
+                n.chain = buckets[b];
+                buckets[b] = n;
+                n = following;
+            }
+        }
+    }
+
+    /**
+     * Drops every node that is not part of the current universe. Memoized
+     * results pointing to dropped nodes are forgotten as well.
+     */
+    private void collectGarbage() {
+        markEpoch++;
+        mark(root);
+        for (Node e : empty)
+            if (e != null)
+                mark(e);
+
+        int alive = 0;
+        for (int b = 0; b < buckets.length; b++)
+        {
+            Node kept = null;
+            Node n = buckets[b];
+            while (n != null)
+            {
+                Node following = n.chain;
+                if (n.mark == markEpoch)
+                {
+                    if (n.result != null && n.result.mark != markEpoch)
+                        n.result = null;
+                    n.chain = kept;
+                    kept = n;
+                    alive++;
+                }
+                n = following;
+            }
+            buckets[b] = kept;
+        }
+        nodeCount = alive;
+    }
+
+    private void mark(Node n) {
+        if (n.level == 0 || n.mark == markEpoch)
+            return;
+        n.mark = markEpoch;
+        mark(n.nw);
+        mark(n.ne);
+        mark(n.sw);
+        mark(n.se);
+    }
+}
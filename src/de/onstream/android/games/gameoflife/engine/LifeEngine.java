@@ -0,0 +1,134 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+/**
+ * A headless cellular automaton. Implementations must not depend on any
+ * android.* class, so they can be stepped, profiled and benchmarked on a
+ * plain JVM without a View or a Canvas.
+ *
+ * Cells are addressed as x (column, 0..width-1) and y (row, 0..height-1),
+ * the same way GameView always did it.
+ */
+public interface LifeEngine
+{
+    int getWidth();
+    int getHeight();
+
+    boolean getCell(int x, int y);
+    void setCell(int x, int y, boolean alive);
+
+    /**
+     * Kills every cell and resets the generation counter to 0.
+     */
+    void clear();
+
+    /**
+     * @return what lies beyond the edges of the board
+     */
+    Topology getTopology();
+
+    /**
+     * Changes what lies beyond the edges, the board stays as it is.
+     *
+     * @throws IllegalArgumentException if the engine can't do that topology
+     */
+    void setTopology(Topology topology);
+
+    /**
+     * @return the rule the engine runs, Rule.CONWAY unless setRule() changed it
+     */
+    Rule getRule();
+
+    /**
+     * Switches to another rule, the board stays as it is.
+     *
+     * @throws IllegalArgumentException if the engine can't run that rule
+     */
+    void setRule(Rule rule);
+
+    /**
+     * Calculates up to n new generations. Stepping stops early as soon as a
+     * generation does not change a single cell, because from then on nothing
+     * will ever happen again.
+     *
+     * @return the number of generations that actually changed the board
+     */
+    int step(int n);
+
+    /**
+     * @return the number of alive cells
+     */
+    long getPopulation();
+
+    /**
+     * @return the number of generations calculated since the last clear()
+     */
+    long getGeneration();
+
+    /**
+     * Copies the board, generation, population, rule and topology into target.
+     */
+    void snapshot(BoardSnapshot target);
+
+    /**
+     * Takes over board, generation and population of a snapshot, the
+     * opposite of snapshot(). The snapshot must have the size of the board.
+     * Engines with an unbounded universe only get back what was on the board.
+     * Rule and topology stay as they are, set them on their own if needed.
+     */
+    void restore(BoardSnapshot source);
+
+    /**
+     * Turns recording of flipped cells on or off. It is off by default, because
+     * nobody running the engine headless wants to pay for it.
+     */
+    void setTrackChanges(boolean track);
+
+    /**
+     * @return every cell flipped by step(), setCell() or clear() since the
+     *         caller last cleared the set. Engines that can't tell which
+     *         cells changed simply mark it full.
+     */
+    ChangeSet getChanges();
+
+    /**
+     * Releases everything the engine holds on to besides memory, like worker
+     * threads. The engine must not be used afterwards.
+     */
+    void dispose();
+}
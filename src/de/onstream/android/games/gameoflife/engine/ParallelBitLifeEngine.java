@@ -0,0 +1,197 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+/**
+ * The bitboard engine, but the board is cut into horizontal bands which are
+ * calculated in parallel on a fixed set of worker threads. A generation is
+ * only finished when every band is done, so the result is exactly the same
+ * as with the single threaded BitLifeEngine.
+ *
+ * Each worker owns one band for the lifetime of the engine. Starting a
+ * generation and waiting for its end goes through one monitor and a round
+ * counter, a barrier that is reset by counting on, so a generation doesn't
+ * allocate anything, not even a task in an executor queue.
+ *
+ * Call dispose() when the engine is no longer needed to stop the workers.
+ */
+public class ParallelBitLifeEngine extends BitLifeEngine
+{
+    //below that many rows per band the handoff costs more than it saves
+    private static final int MIN_ROWS_PER_BAND = 32;
+
+    private final Band[] bands;
+    private final Worker[] workers;
+
+    //the barrier, all guarded by itself
+    private final Object lock = new Object();
+    private long round = 0;    //bumped to start a generation
+    private int running = 0;   //workers that haven't finished the current round yet
+    private boolean stopped = false;
+    private RuntimeException failure; //what a worker ran into, thrown on the calling thread
+
+    public ParallelBitLifeEngine(int width, int height) {
+        this(width, height, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelBitLifeEngine(int width, int height, int threads) {
+        super(width, height);
+        int count = Math.max(1, Math.min(threads, height / MIN_ROWS_PER_BAND));
+
+        bands = new Band[count];
+        for (int b = 0; b < count; b++)
+        {
+            //spread the remainder over the first bands
+            bands[b] = new Band(new ChangeSet(changes.getMaxSize())).reset(b * height / count, (b + 1) * height / count);
+        }
+        //the calling thread calculates the last band itself
+        workers = new Worker[count - 1];
+        for (int b = 0; b < workers.length; b++)
+        {
+            workers[b] = new Worker(bands[b], b + 1);
+            workers[b].start();
+        }
+    }
+
+    public int getBandCount() {
+        return bands.length;
+    }
+
+    @Override
+    protected boolean nextGeneration() {
+        wrapEdges(); //before any band reads the guards
+        int last = bands.length - 1;
+        if (trackChanges)
+            for (Band band : bands)
+                band.changes.clear();
+        if (last > 0)
+        {
+            synchronized (lock) {
+                running = last;
+                round++;
+                lock.notifyAll();
+            }
+        }
+        computeRows(bands[last]);
+        if (last > 0)
+            awaitBands();
+
+        boolean changed = false;
+        long populationChange = 0;
+        for (Band band : bands)
+        {
+            changed |= band.changed;
+            populationChange += band.populationChange;
+            if (trackChanges)
+                changes.addAll(band.changes);
+        }
+        return finishGeneration(changed, populationChange);
+    }
+
+    private void awaitBands() {
+        boolean interrupted = false;
+        RuntimeException e;
+        synchronized (lock) {
+            while (running > 0)
+            {
+                try {
+                    lock.wait();
+                } catch (InterruptedException ie) {
+                    interrupted = true; //we can't leave with half a generation calculated
+                }
+            }
+            e = failure;
+            failure = null;
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        if (e != null)
+            throw e;
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (lock) {
+            stopped = true;
+            lock.notifyAll();
+        }
+    }
+
+    //calculates its band once per round, until the engine is disposed
+    private class Worker extends Thread
+    {
+        private final Band band;
+
+        Worker(Band band, int number) {
+            super("life-worker-" + number);
+            this.band = band;
+            setDaemon(true); //never keep the process alive
+        }
+
+        @Override
+        public void run() {
+            long done = 0;
+            while (true)
+            {
+                synchronized (lock) {
+                    while (round == done && !stopped)
+                    {
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            //only dispose() ends a worker
+                        }
+                    }
+                    if (stopped) return;
+                    done = round;
+                }
+                RuntimeException error = null;
+                try {
+                    computeRows(band);
+                } catch (RuntimeException e) {
+                    error = e;
+                }
+                synchronized (lock) {
+                    if (error != null && failure == null)
+                        failure = error;
+                    if (--running == 0)
+                        lock.notifyAll();
+                }
+            }
+        }
+    }
+}
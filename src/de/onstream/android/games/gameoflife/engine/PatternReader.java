@@ -0,0 +1,424 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads RLE, plaintext and Life 1.06 patterns straight into an engine.
+ *
+ * The input is parsed character by character out of a fixed buffer and
+ * every alive cell goes directly into setCell(), there is no list of cells
+ * or line strings in between. Cells which end up outside of the board are
+ * dropped.
+ *
+ * Use readHeader() first to find out the format and, for RLE, the size of
+ * the pattern, then readCells() to put it on the board. read() does both.
+ */
+public class PatternReader
+{
+    private static final int EOF = -1;
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int pos = 0;
+    private int limit = 0;
+    private int line = 1;
+
+    private PatternFormat format;
+    private int patternWidth  = -1;
+    private int patternHeight = -1;
+    private String rule;
+    //only used for the few header and comment lines
+    private final StringBuilder text = new StringBuilder();
+
+    public PatternReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the pattern with its upper left corner (the origin for Life 1.06)
+     * at x/y.
+     */
+    public static PatternFormat read(Reader in, LifeEngine engine, int x, int y) throws IOException {
+        PatternReader r = new PatternReader(in);
+        PatternFormat f = r.readHeader();
+        r.readCells(engine, x, y);
+        return f;
+    }
+
+    /**
+     * Detects the format and reads everything in front of the cells.
+     */
+    public PatternFormat readHeader() throws IOException {
+        if (format != null) return format;
+        skipWhitespace();
+        int c = peek();
+        if (c == '#')
+        {
+            readLine();
+            if (startsWith("#Life 1.06"))
+            {
+                format = PatternFormat.LIFE_106;
+                return format;
+            }
+            if (startsWith("#Life"))
+                throw error("unsupported format " + text.toString().trim());
+            //the other '#' lines are RLE comments
+            format = PatternFormat.RLE;
+            skipWhitespace();
+            while (peek() == '#')
+            {
+                readLine();
+                skipWhitespace();
+            }
+            if (peek() == 'x')
+                readRleHeader();
+        }
+        else if (c == 'x')
+        {
+            format = PatternFormat.RLE;
+            readRleHeader();
+        }
+        else if (c == '!' || c == '.' || c == 'O' || c == '*')
+        {
+            format = PatternFormat.PLAINTEXT;
+        }
+        else if (c == EOF)
+        {
+            throw error("empty pattern");
+        }
+        else
+        {
+            throw error("unknown format");
+        }
+        return format;
+    }
+
+    public PatternFormat getFormat() {
+        return format;
+    }
+
+    //-1 if the format doesn't say
+    public int getPatternWidth() {
+        return patternWidth;
+    }
+
+    //-1 if the format doesn't say
+    public int getPatternHeight() {
+        return patternHeight;
+    }
+
+    /**
+     * Where readCells() has to put the pattern to get it into the middle of
+     * a board that wide: the upper left corner of a pattern that tells its
+     * size, the origin of a Life 1.06 file, the upper left corner of the
+     * board for plaintext. PatternWriter writes Life 1.06 relative to the
+     * middle of the board, so a board saved in any format comes back unmoved.
+     */
+    public int originX(int boardWidth) {
+        if (patternWidth >= 0) return (boardWidth - patternWidth) / 2;
+        return format == PatternFormat.LIFE_106 ? boardWidth / 2 : 0;
+    }
+
+    public int originY(int boardHeight) {
+        if (patternHeight >= 0) return (boardHeight - patternHeight) / 2;
+        return format == PatternFormat.LIFE_106 ? boardHeight / 2 : 0;
+    }
+
+    //the rule from the RLE header, null if there is none
+    public String getRule() {
+        return rule;
+    }
+
+    /**
+     * Sets the cells of the pattern, with its upper left corner (the origin
+     * for Life 1.06) at x/y. Cells already alive on the board stay alive.
+     */
+    public void readCells(LifeEngine engine, int x, int y) throws IOException {
+        switch (readHeader()) {
+            case RLE:
+                readRle(engine, x, y);
+                break;
+            case PLAINTEXT:
+                readPlaintext(engine, x, y);
+                break;
+            case LIFE_106:
+                readLife106(engine, x, y);
+                break;
+        }
+    }
+
+    //x = 3, y = 3, rule = B3/S23, Golly may add a grid to the rule: rule = B3/S23:T64,64
+    private void readRleHeader() throws IOException {
+        readLine();
+        String header = text.toString();
+        int start = 0;
+        while (start < header.length())
+        {
+            int eq = header.indexOf('=', start);
+            if (eq < 0) throw error("bad header " + header.trim());
+            //the value ends at the last comma in front of the next key, commas inside it stay
+            int next = header.indexOf('=', eq + 1);
+            int end = next < 0 ? header.length() : header.lastIndexOf(',', next);
+            if (end <= eq) throw error("bad header " + header.trim());
+            String key = header.substring(start, eq).trim();
+            String value = header.substring(eq + 1, end).trim();
+            try {
+                if ("x".equals(key))
+                    patternWidth = Integer.parseInt(value);
+                else if ("y".equals(key))
+                    patternHeight = Integer.parseInt(value);
+                else if ("rule".equals(key))
+                {
+                    //we have our own idea of the edges, the grid after the colon is not part of the rule
+                    int colon = value.indexOf(':');
+                    rule = colon < 0 ? value : value.substring(0, colon).trim();
+                }
+            } catch (NumberFormatException e) {
+                throw error("bad header " + header.trim());
+            }
+            start = end + 1;
+        }
+        if (patternWidth < 0 || patternHeight < 0)
+            throw error("bad header " + header.trim());
+    }
+
+    private void readRle(LifeEngine engine, int x0, int y0) throws IOException {
+        int count = 0;
+        long x = 0;
+        long y = 0;
+        int c;
+        while ((c = next()) != EOF)
+        {
+            if (c >= '0' && c <= '9')
+            {
+                if (count > 100000000) throw error("run too long");
+                count = count * 10 + (c - '0');
+                continue;
+            }
+            int n = count == 0 ? 1 : count;
+            if (c == 'b' || c == '.')
+            {
+                x += n;
+            }
+            else if (c == '$')
+            {
+                y += n;
+                x = 0;
+            }
+            else if (c == '!')
+            {
+                return;
+            }
+            else if (c == 'o' || (c >= 'A' && c <= 'Z'))
+            {
+                //multi state files use letters for the alive states
+                fillRun(engine, x0 + x, y0 + y, n);
+                x += n;
+            }
+            else if (c == '#' && count == 0)
+            {
+                skipLine();
+            }
+            else if (c == ' ' || c == '\t' || c == '\r' || c == '\n')
+            {
+                if (count != 0) throw error("run count without a cell");
+                continue;
+            }
+            else
+            {
+                throw error("unexpected character '" + (char) c + "'");
+            }
+            count = 0;
+        }
+        //some files forget the '!', everything up to here still counts
+    }
+
+    private void readPlaintext(LifeEngine engine, int x0, int y0) throws IOException {
+        long x = 0;
+        long y = 0;
+        boolean lineStart = true;
+        int c;
+        while ((c = next()) != EOF)
+        {
+            if (lineStart && c == '!')
+            {
+                skipLine();
+                continue;
+            }
+            lineStart = false;
+            if (c == '.')
+            {
+                x++;
+            }
+            else if (c == 'O' || c == '*')
+            {
+                fillRun(engine, x0 + x, y0 + y, 1);
+                x++;
+            }
+            else if (c == '\n')
+            {
+                x = 0;
+                y++;
+                lineStart = true;
+            }
+            else if (c != '\r' && c != ' ' && c != '\t')
+            {
+                throw error("unexpected character '" + (char) c + "'");
+            }
+        }
+    }
+
+    private void readLife106(LifeEngine engine, int x0, int y0) throws IOException {
+        for (;;)
+        {
+            skipWhitespace();
+            int c = peek();
+            if (c == EOF) return;
+            if (c == '#')
+            {
+                skipLine();
+                continue;
+            }
+            int x = readInt();
+            skipBlanks();
+            int y = readInt();
+            skipBlanks();
+            c = peek();
+            if (c != '\n' && c != '\r' && c != EOF) throw error("expected one \"x y\" pair per line");
+            fillRun(engine, (long) x0 + x, (long) y0 + y, 1);
+        }
+    }
+
+    //sets n cells starting at x/y, clipped to the board
+    private static void fillRun(LifeEngine engine, long x, long y, int n) {
+        if (y < 0 || y >= engine.getHeight()) return;
+        long from = Math.max(x, 0);
+        long to = Math.min(x + n, engine.getWidth());
+        for (long i = from; i < to; i++)
+            engine.setCell((int) i, (int) y, true);
+    }
+
+    private int readInt() throws IOException {
+        boolean negative = false;
+        if (peek() == '-')
+        {
+            negative = true;
+            next();
+        }
+        else if (peek() == '+')
+        {
+            next();
+        }
+        int c = peek();
+        if (c < '0' || c > '9') throw error("number expected");
+        long v = 0;
+        while ((c = peek()) >= '0' && c <= '9')
+        {
+            v = v * 10 + (c - '0');
+            if (v > Integer.MAX_VALUE) throw error("number too large");
+            next();
+        }
+        return (int) (negative ? -v : v);
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) return EOF;
+        return buffer[pos];
+    }
+
+    private int next() throws IOException {
+        if (pos == limit && !fill()) return EOF;
+        char c = buffer[pos++];
+        if (c == '\n') line++;
+        return c;
+    }
+
+    private boolean fill() throws IOException {
+        int n;
+        do
+        {
+            n = in.read(buffer, 0, buffer.length);
+        }
+        while (n == 0);
+        if (n < 0) return false;
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    private void skipWhitespace() throws IOException {
+        int c;
+        while ((c = peek()) == ' ' || c == '\t' || c == '\r' || c == '\n')
+            next();
+    }
+
+    private void skipBlanks() throws IOException {
+        int c;
+        while ((c = peek()) == ' ' || c == '\t')
+            next();
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        while ((c = next()) != EOF && c != '\n')
+        {
+            //nothing
+        }
+    }
+
+    //reads the rest of the line into text, without the line break
+    private void readLine() throws IOException {
+        text.setLength(0);
+        int c;
+        while ((c = next()) != EOF && c != '\n')
+            if (c != '\r') text.append((char) c);
+    }
+
+    private boolean startsWith(String prefix) {
+        if (text.length() < prefix.length()) return false;
+        for (int i = 0; i < prefix.length(); i++)
+            if (text.charAt(i) != prefix.charAt(i)) return false;
+        return true;
+    }
+
+    private IOException error(String message) {
+        return new IOException("line " + line + ": " + message);
+    }
+}
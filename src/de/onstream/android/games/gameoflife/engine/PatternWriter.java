@@ -0,0 +1,251 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes the board of an engine or a snapshot as RLE, plaintext or Life 1.06.
+ *
+ * The board is walked row by row and the text goes out through a fixed
+ * buffer as soon as it fills up, so even the biggest boards never exist
+ * as one large string. Numbers are formatted by hand for the same reason.
+ */
+public class PatternWriter
+{
+    //the RLE spec wants lines no longer than that
+    private static final int RLE_LINE_LENGTH = 70;
+
+    private final Writer out;
+    private final char[] buffer = new char[8192];
+    private int pos = 0;
+    private int column = 0;
+    private final char[] digits = new char[11];
+
+    public PatternWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the whole board and flushes the writer, it is not closed.
+     */
+    public static void write(Writer out, LifeEngine engine, PatternFormat format) throws IOException {
+        new PatternWriter(out).writeBoard(engine, format);
+    }
+
+    /**
+     * Writes the board of a snapshot, e.g. one the simulation published,
+     * so the engine can go on meanwhile.
+     */
+    public static void write(Writer out, BoardSnapshot s, PatternFormat format) throws IOException {
+        new PatternWriter(out).writeBoard(s, format);
+    }
+
+    public void writeBoard(LifeEngine engine, PatternFormat format) throws IOException {
+        BoardSnapshot s = new BoardSnapshot();
+        engine.snapshot(s);
+        writeBoard(s, format);
+    }
+
+    public void writeBoard(BoardSnapshot s, PatternFormat format) throws IOException {
+        switch (format) {
+            case RLE:
+                writeRle(s);
+                break;
+            case PLAINTEXT:
+                writePlaintext(s);
+                break;
+            case LIFE_106:
+                writeLife106(s);
+                break;
+        }
+        flushBuffer();
+        out.flush();
+    }
+
+    private void writeRle(BoardSnapshot s) throws IOException {
+        int w = s.getWidth();
+        int h = s.getHeight();
+        append("x = ");
+        append(w);
+        append(", y = ");
+        append(h);
+        if (s.getRule() != null)
+        {
+            append(", rule = ");
+            append(s.getRule().toString());
+        }
+        append('\n');
+
+        int rows = 0; //row ends not written yet, empty rows just add up
+        for (int y = 0; y < h; y++)
+        {
+            int x = 0;
+            int dead = 0; //dead runs are only written in front of alive ones
+            while (x < w)
+            {
+                int start = x;
+                boolean alive = s.get(x, y);
+                while (x < w && s.get(x, y) == alive) x++;
+                if (!alive)
+                {
+                    dead = x - start;
+                    continue;
+                }
+                if (rows > 0)
+                {
+                    appendRun(rows, '$');
+                    rows = 0;
+                }
+                if (dead > 0) appendRun(dead, 'b');
+                appendRun(x - start, 'o');
+                dead = 0;
+            }
+            rows++;
+        }
+        appendRun(1, '!');
+        append('\n');
+    }
+
+    private void writePlaintext(BoardSnapshot s) throws IOException {
+        int w = s.getWidth();
+        int h = s.getHeight();
+        append("!Name: ");
+        append(w);
+        append('x');
+        append(h);
+        append(" board\n");
+        for (int y = 0; y < h; y++)
+        {
+            int dead = 0; //dead cells at the end of a line are left out
+            for (int x = 0; x < w; x++)
+            {
+                if (s.get(x, y))
+                {
+                    for (; dead > 0; dead--)
+                        append('.');
+                    append('O');
+                }
+                else
+                {
+                    dead++;
+                }
+            }
+            append('\n');
+        }
+    }
+
+    //relative to the middle of the board, where PatternReader.originX/Y() puts them back
+    private void writeLife106(BoardSnapshot s) throws IOException {
+        int w = s.getWidth();
+        int h = s.getHeight();
+        append("#Life 1.06\n");
+        for (int y = 0; y < h; y++)
+        {
+            for (int x = 0; x < w; x++)
+            {
+                if (s.get(x, y))
+                {
+                    append(x - w / 2);
+                    append(' ');
+                    append(y - h / 2);
+                    append('\n');
+                }
+            }
+        }
+    }
+
+    //one "<n><tag>" item, wrapped to RLE_LINE_LENGTH
+    private void appendRun(int n, char tag) throws IOException {
+        int len = 1;
+        int d = 0;
+        if (n > 1)
+        {
+            d = formatInt(n);
+            len += d;
+        }
+        if (column + len > RLE_LINE_LENGTH)
+        {
+            append('\n');
+        }
+        if (n > 1) append(digits, digits.length - d, d);
+        append(tag);
+    }
+
+    private void append(int v) throws IOException {
+        int d = formatInt(v);
+        append(digits, digits.length - d, d);
+    }
+
+    //formats v right aligned into digits and returns the number of chars used
+    private int formatInt(int v) {
+        long n = v;
+        boolean negative = n < 0;
+        if (negative) n = -n;
+        int i = digits.length;
+        do
+        {
+            digits[--i] = (char) ('0' + (n % 10));
+            n /= 10;
+        }
+        while (n != 0);
+        if (negative) digits[--i] = '-';
+        return digits.length - i;
+    }
+
+    private void append(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++)
+            append(s.charAt(i));
+    }
+
+    private void append(char[] chars, int offset, int len) throws IOException {
+        for (int i = 0; i < len; i++)
+            append(chars[offset + i]);
+    }
+
+    private void append(char c) throws IOException {
+        if (pos == buffer.length) flushBuffer();
+        buffer[pos++] = c;
+        column = c == '\n' ? 0 : column + 1;
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, pos);
+        pos = 0;
+    }
+}
@@ -0,0 +1,125 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+import java.util.Random;
+
+/**
+ * A few well known patterns as lists of x/y cell offsets, and a way to put
+ * them (or random soup) onto a board.
+ */
+public final class Patterns
+{
+    public static final int[][] GLIDER = {
+        {1, 0}, {2, 1}, {0, 2}, {1, 2}, {2, 2}
+    };
+
+    public static final int[][] R_PENTOMINO = {
+        {1, 0}, {2, 0}, {0, 1}, {1, 1}, {1, 2}
+    };
+
+    //the smallest still life
+    public static final int[][] BLOCK = {
+        {0, 0}, {1, 0}, {0, 1}, {1, 1}
+    };
+
+    //period 2, like the toad
+    public static final int[][] BLINKER = {
+        {0, 0}, {1, 0}, {2, 0}
+    };
+
+    public static final int[][] TOAD = {
+        {1, 0}, {2, 0}, {3, 0}, {0, 1}, {1, 1}, {2, 1}
+    };
+
+    //Bill Gosper's glider gun, period 30
+    public static final int[][] GOSPER_GLIDER_GUN = {
+        {24, 0},
+        {22, 1}, {24, 1},
+        {12, 2}, {13, 2}, {20, 2}, {21, 2}, {34, 2}, {35, 2},
+        {11, 3}, {15, 3}, {20, 3}, {21, 3}, {34, 3}, {35, 3},
+        {0, 4}, {1, 4}, {10, 4}, {16, 4}, {20, 4}, {21, 4},
+        {0, 5}, {1, 5}, {10, 5}, {14, 5}, {16, 5}, {17, 5}, {22, 5}, {24, 5},
+        {10, 6}, {16, 6}, {24, 6},
+        {11, 7}, {15, 7},
+        {12, 8}, {13, 8}
+    };
+
+    private Patterns() {
+    }
+
+    public static int width(int[][] pattern) {
+        int w = 0;
+        for (int[] c : pattern)
+            w = Math.max(w, c[0] + 1);
+        return w;
+    }
+
+    public static int height(int[][] pattern) {
+        int h = 0;
+        for (int[] c : pattern)
+            h = Math.max(h, c[1] + 1);
+        return h;
+    }
+
+    /**
+     * Sets the cells of the pattern with its upper left corner at x/y.
+     */
+    public static void place(LifeEngine engine, int[][] pattern, int x, int y) {
+        for (int[] c : pattern)
+            engine.setCell(x + c[0], y + c[1], true);
+    }
+
+    /**
+     * Puts the pattern in the middle of the board.
+     */
+    public static void center(LifeEngine engine, int[][] pattern) {
+        place(engine, pattern, (engine.getWidth() - width(pattern)) / 2,
+                               (engine.getHeight() - height(pattern)) / 2);
+    }
+
+    /**
+     * Brings every cell of the board to life with the given probability.
+     * The same random seed always gives the same soup.
+     */
+    public static void randomSoup(LifeEngine engine, double density, Random random) {
+        for (int y = 0; y < engine.getHeight(); y++)
+            for (int x = 0; x < engine.getWidth(); x++)
+                if (random.nextDouble() < density)
+                    engine.setCell(x, y, true);
+    }
+}
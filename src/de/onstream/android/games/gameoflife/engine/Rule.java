@@ -0,0 +1,224 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+import java.util.Locale;
+
+/**
+ * A life-like rule in B/S notation: a dead cell is born if its number of
+ * alive neighbours is in B, an alive cell survives if it is in S, every
+ * other cell is dead in the next generation. Conway's game is B3/S23.
+ *
+ * The rule is kept as a transition table indexed by (neighbours &lt;&lt; 1) |
+ * state, so engines can look the next state up instead of branching on it.
+ * Bit parallel engines get the neighbour counts that matter instead, see
+ * BitLifeEngine.evolve().
+ *
+ * Rules are immutable.
+ */
+public final class Rule
+{
+    public static final Rule CONWAY        = new Rule(1 << 3, (1 << 2) | (1 << 3));
+    public static final Rule HIGHLIFE      = parse("B36/S23");
+    public static final Rule SEEDS         = parse("B2/S");
+    public static final Rule DAY_AND_NIGHT = parse("B3678/S34678");
+
+    private final int birth;   //bit n set: born with n neighbours
+    private final int survive; //bit n set: survives with n neighbours
+    private final byte[] table = new byte[18];
+
+    //for bit parallel engines: every count in B or S, and all ones if it is in B or S
+    final int[] counts;
+    final long[] bornSelect;
+    final long[] surviveSelect;
+
+    private Rule(int birth, int survive) {
+        this.birth = birth;
+        this.survive = survive;
+        int n = Integer.bitCount(birth | survive);
+        counts = new int[n];
+        bornSelect = new long[n];
+        surviveSelect = new long[n];
+        int k = 0;
+        for (int i = 0; i <= 8; i++)
+        {
+            table[i << 1]       = (byte) ((birth >>> i) & 1);
+            table[(i << 1) | 1] = (byte) ((survive >>> i) & 1);
+            if (((birth | survive) & (1 << i)) != 0)
+            {
+                counts[k] = i;
+                bornSelect[k] = -((birth >>> i) & 1L);
+                surviveSelect[k] = -((survive >>> i) & 1L);
+                k++;
+            }
+        }
+    }
+
+    /**
+     * Parses "B36/S23", the older "23/36" (survival first) and the names
+     * Conway, Life, HighLife, Seeds and Day &amp; Night. Case doesn't matter.
+     *
+     * @throws IllegalArgumentException if it is none of those
+     */
+    public static Rule parse(String rule) {
+        String r = rule.trim().toUpperCase(Locale.US);
+        if (r.equals("CONWAY") || r.equals("LIFE")) return CONWAY;
+        if (r.equals("HIGHLIFE")) return HIGHLIFE;
+        if (r.equals("SEEDS")) return SEEDS;
+        if (r.equals("DAY & NIGHT") || r.equals("DAY AND NIGHT") || r.equals("DAYNIGHT"))
+            return DAY_AND_NIGHT;
+
+        int birth = 0;
+        int survive = 0;
+        if (r.indexOf('B') >= 0 || r.indexOf('S') >= 0)
+        {
+            //B3/S23, B3S23 or S23/B3
+            boolean sawBirth = false;
+            boolean sawSurvive = false;
+            int i = 0;
+            while (i < r.length())
+            {
+                char c = r.charAt(i++);
+                int start = i;
+                while (i < r.length() && Character.isDigit(r.charAt(i))) i++;
+                if (c == 'B' && !sawBirth)
+                {
+                    sawBirth = true;
+                    birth = counts(r.substring(start, i), rule);
+                }
+                else if (c == 'S' && !sawSurvive)
+                {
+                    sawSurvive = true;
+                    survive = counts(r.substring(start, i), rule);
+                }
+                else if (c != '/' || start == 1 || i == r.length() || start != i
+                         || r.charAt(start - 2) == '/')
+                {
+                    throw new IllegalArgumentException("unknown rule " + rule);
+                }
+            }
+            if (!sawBirth || !sawSurvive)
+                throw new IllegalArgumentException("unknown rule " + rule);
+        }
+        else
+        {
+            //23/3, survival first
+            int slash = r.indexOf('/');
+            if (slash < 0)
+                throw new IllegalArgumentException("unknown rule " + rule);
+            survive = counts(r.substring(0, slash), rule);
+            birth   = counts(r.substring(slash + 1), rule);
+        }
+        if (birth == CONWAY.birth && survive == CONWAY.survive) return CONWAY;
+        return new Rule(birth, survive);
+    }
+
+    /**
+     * The rule with these masks, bit n of birthMask set means born with n
+     * alive neighbours, the same for survivalMask.
+     *
+     * @throws IllegalArgumentException if a mask has bits above 8 set
+     */
+    public static Rule fromMasks(int birthMask, int survivalMask) {
+        if ((birthMask | survivalMask) >>> 9 != 0)
+            throw new IllegalArgumentException("no rule for the masks " + birthMask + "/" + survivalMask);
+        if (birthMask == CONWAY.birth && survivalMask == CONWAY.survive) return CONWAY;
+        return new Rule(birthMask, survivalMask);
+    }
+
+    private static int counts(String digits, String rule) {
+        int mask = 0;
+        for (int i = 0; i < digits.length(); i++)
+        {
+            char c = digits.charAt(i);
+            if (c < '0' || c > '8')
+                throw new IllegalArgumentException("unknown rule " + rule);
+            mask |= 1 << (c - '0');
+        }
+        return mask;
+    }
+
+    public boolean isBorn(int neighbours) {
+        return (birth & (1 << neighbours)) != 0;
+    }
+
+    public boolean survives(int neighbours) {
+        return (survive & (1 << neighbours)) != 0;
+    }
+
+    //bit n: born with n alive neighbours
+    public int getBirthMask() {
+        return birth;
+    }
+
+    //bit n: survives with n alive neighbours
+    public int getSurvivalMask() {
+        return survive;
+    }
+
+    /**
+     * @return the transition table, next state = table[(neighbours &lt;&lt; 1) | state]
+     *         with 0 for dead and 1 for alive. Don't modify it.
+     */
+    public byte[] getTable() {
+        return table;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Rule)) return false;
+        Rule r = (Rule) o;
+        return r.birth == birth && r.survive == survive;
+    }
+
+    @Override
+    public int hashCode() {
+        return (birth << 9) | survive;
+    }
+
+    //B/S notation, like B36/S23
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("B");
+        for (int i = 0; i <= 8; i++)
+            if (isBorn(i)) sb.append((char) ('0' + i));
+        sb.append("/S");
+        for (int i = 0; i <= 8; i++)
+            if (survives(i)) sb.append((char) ('0' + i));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,128 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+/**
+ * Triple buffered snapshots: one thread writes into the back snapshot and
+ * publishes it, another one always draws the most recent complete snapshot.
+ * Neither side ever waits for the other one to finish its work, they only
+ * swap references.
+ *
+ * There must only be one writer at a time.
+ *
+ * If the reader skips a snapshot, its changes are carried over into the
+ * next one, so the changes of the snapshot the reader gets always cover
+ * everything since the one it saw before.
+ *
+ * The reader thread may also take a look at the latest board without
+ * drawing it, e.g. to save it. The next snapshot it acquires then tells it
+ * to redraw everything, since the changes it missed are gone.
+ */
+public class SnapshotBuffer
+{
+    private BoardSnapshot back   = new BoardSnapshot();
+    private BoardSnapshot middle = new BoardSnapshot();
+    private BoardSnapshot front  = new BoardSnapshot();
+    private boolean fresh = false; //middle holds something the reader hasn't seen yet
+    private boolean skipped = false; //latest() took a snapshot the reader didn't draw
+
+    /**
+     * @return the snapshot the writer may fill, until it calls publish()
+     */
+    public BoardSnapshot getBack() {
+        return back;
+    }
+
+    public synchronized void publish() {
+        if (fresh && middle.getWidth() == back.getWidth() && middle.getHeight() == back.getHeight())
+            back.getChanges().addAll(middle.getChanges()); //the reader never saw those
+        else if (fresh)
+            back.getChanges().markFull();
+        BoardSnapshot tmp = middle;
+        middle = back;
+        back = tmp;
+        fresh = true;
+    }
+
+    /**
+     * @return true if a published snapshot wasn't picked up by the reader yet
+     */
+    public synchronized boolean hasPending() {
+        return fresh;
+    }
+
+    /**
+     * @return what the last acquire() returned, without picking up anything
+     * new, so the reader still gets those changes with its next acquire()
+     */
+    public synchronized BoardSnapshot peek() {
+        return front;
+    }
+
+    /**
+     * @return the latest published snapshot, it stays valid until the next call
+     */
+    public synchronized BoardSnapshot acquire() {
+        if (fresh)
+        {
+            BoardSnapshot tmp = front;
+            front = middle;
+            middle = tmp;
+            fresh = false;
+        }
+        if (skipped)
+        {
+            front.getChanges().markFull();
+            skipped = false;
+        }
+        return front;
+    }
+
+    /**
+     * Reader only. The latest published snapshot, like acquire(), for
+     * anything but drawing it. It stays valid until the next acquire() or
+     * latest(). Don't modify it.
+     */
+    public synchronized BoardSnapshot latest() {
+        if (fresh)
+        {
+            acquire();
+            skipped = true;
+        }
+        return front;
+    }
+}
@@ -0,0 +1,193 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Saves and loads a BoardSnapshot as a small binary file. The cells are
+ * stored bit packed, exactly like in the snapshot, and moved through a
+ * memory mapped buffer with one bulk copy, so even a 4096x4096 board is
+ * only 2 MB and takes a few milliseconds.
+ *
+ * Layout, big endian:
+ *
+ *   int  magic "GOLS"
+ *   int  version
+ *   int  width
+ *   int  height
+ *   int  birth mask, bit n: born with n alive neighbours
+ *   int  survival mask
+ *   int  topology, Topology.ordinal()
+ *   int  0, keeps the longs 8 byte aligned
+ *   long generation
+ *   long population
+ *   long checksum of the cell words
+ *   long cells[height * ((width + 63) / 64)], bit x &amp; 63 of a word is cell x
+ *
+ * Unused bits of the last word in a row are 0. Version 1 files have no
+ * rule and topology (and so no int fields for them), the snapshot gets
+ * null for both.
+ */
+public final class SnapshotFile
+{
+    public static final int MAGIC   = 0x474F4C53; //"GOLS"
+    public static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 56;
+    private static final int HEADER_SIZE_1 = 40;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes the snapshot into file. The data goes into a temporary file
+     * first, so a crash while saving never destroys the previous state.
+     */
+    public static void write(File file, BoardSnapshot s) throws IOException {
+        long[] rows = s.getRows();
+        int count = s.getWords() * s.getHeight();
+        long size = HEADER_SIZE + 8L * count;
+
+        File tmp = new File(file.getPath() + ".tmp");
+        RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+        try {
+            raf.setLength(size);
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(s.getWidth());
+            buffer.putInt(s.getHeight());
+            buffer.putInt(s.getRule().getBirthMask());
+            buffer.putInt(s.getRule().getSurvivalMask());
+            buffer.putInt(s.getTopology().ordinal());
+            buffer.putInt(0);
+            buffer.putLong(s.getGeneration());
+            buffer.putLong(s.getPopulation());
+            buffer.putLong(checksum(rows, count));
+            buffer.asLongBuffer().put(rows, 0, count);
+            buffer.force();
+        } finally {
+            raf.close();
+        }
+        if (!tmp.renameTo(file))
+        {
+            //some file systems refuse to rename over an existing file
+            file.delete();
+            if (!tmp.renameTo(file))
+                throw new IOException("can't rename " + tmp + " to " + file);
+        }
+    }
+
+    /**
+     * Reads file into the snapshot, which is resized to fit.
+     *
+     * @throws IOException if the file is no snapshot, has an unknown version or is damaged
+     */
+    public static void read(File file, BoardSnapshot s) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            long length = raf.length();
+            if (length < HEADER_SIZE_1)
+                throw new IOException(file + " is no board snapshot");
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            if (buffer.getInt() != MAGIC)
+                throw new IOException(file + " is no board snapshot");
+            int version = buffer.getInt();
+            if (version != VERSION && version != 1)
+                throw new IOException(file + " has the unknown version " + version);
+            int width  = buffer.getInt();
+            int height = buffer.getInt();
+            Rule rule = null;
+            Topology topology = null;
+            if (version > 1)
+            {
+                if (length < HEADER_SIZE)
+                    throw new IOException(file + " is damaged");
+                int birth = buffer.getInt();
+                int survival = buffer.getInt();
+                int t = buffer.getInt();
+                buffer.getInt();
+                if (t < 0 || t >= Topology.values().length)
+                    throw new IOException(file + " is damaged");
+                try {
+                    rule = Rule.fromMasks(birth, survival);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file + " is damaged");
+                }
+                topology = Topology.values()[t];
+            }
+            long generation = buffer.getLong();
+            long population = buffer.getLong();
+            long checksum   = buffer.getLong();
+            if (width <= 0 || height <= 0 || generation < 0 || population < 0)
+                throw new IOException(file + " is damaged");
+            long count = (long)((width + 63) >>> 6) * height;
+            if (length != (version > 1 ? HEADER_SIZE : HEADER_SIZE_1) + 8 * count)
+                throw new IOException(file + " is damaged");
+
+            s.resize(width, height);
+            long[] rows = s.getRows();
+            LongBuffer cells = buffer.asLongBuffer();
+            cells.get(rows, 0, (int)count);
+            if (checksum(rows, (int)count) != checksum)
+                throw new IOException(file + " is damaged");
+            s.setCounters(generation, population);
+            s.setRules(rule, topology);
+        } finally {
+            raf.close();
+        }
+    }
+
+    //cheap, but catches truncated and scrambled files
+    private static long checksum(long[] words, int count) {
+        long sum = 0x5DEECE66DL;
+        for (int i = 0; i < count; i++)
+            sum = (sum ^ words[i]) * 0x100000001B3L;
+        return sum;
+    }
+}
@@ -0,0 +1,193 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+/**
+ * Calculates the board in tiles of 2x2 cells with a lookup table: the 4x4
+ * cells around a tile decide what the tile looks like one generation
+ * later, and there are only 2^16 such neighbourhoods. So the table is
+ * built once per rule (64 KB, one byte per entry, the lower four bits are
+ * the new tile) and a generation is nothing but pulling 16 bit indices out
+ * of the packed rows and looking them up, no neighbours are counted.
+ *
+ * The cells are stored like in the bitboard, including the guard words
+ * and rows and the edge pass for the torus and the Klein bottle. Other
+ * than the bitboard every word is calculated every generation, there is
+ * no tracking of quiet regions: the table walk is meant for dense,
+ * chaotic boards where that wouldn't skip anything anyway.
+ */
+public class TileLifeEngine extends BitLifeEngine
+{
+    private byte[] tiles; //built on the first step after the rule changed
+    private final long[] noRow; //an empty row, below the last one when the height is odd
+
+    public TileLifeEngine(int width, int height) {
+        super(width, height);
+        noRow = new long[stride];
+    }
+
+    @Override
+    protected void ruleChanged() {
+        super.ruleChanged();
+        tiles = null;
+    }
+
+    /**
+     * Index bit 4 r + c is the cell in row r and column c of the 4x4
+     * neighbourhood, the entry has the new state of cell (1 + b &amp; 1)/(1 + b &gt;&gt; 1)
+     * in bit b.
+     */
+    static byte[] buildTable(Rule rule) {
+        byte[] transitions = rule.getTable();
+        byte[] table = new byte[1 << 16];
+        for (int index = 0; index < table.length; index++)
+        {
+            int tile = 0;
+            for (int b = 0; b < 4; b++)
+            {
+                int x = 1 + (b & 1);
+                int y = 1 + (b >> 1);
+                int count = 0;
+                for (int dy = -1; dy <= 1; dy++)
+                    for (int dx = -1; dx <= 1; dx++)
+                        if (dx != 0 || dy != 0)
+                            count += (index >>> (4 * (y + dy) + x + dx)) & 1;
+                int state = (index >>> (4 * y + x)) & 1;
+                tile |= transitions[(count << 1) | state] << b;
+            }
+            table[index] = (byte)tile;
+        }
+        return table;
+    }
+
+    @Override
+    protected boolean nextGeneration() {
+        if (tiles == null)
+            tiles = buildTable(rule);
+        wrapEdges();
+
+        final long[] c = cells;
+        final long[] n = next;
+        final byte[] table = tiles;
+        final ChangeSet flipped = trackChanges ? changes : null;
+        final int rest = width & 63;
+        //on the torus and the Klein bottle the right neighbour of the last cell is the first one of its row
+        final boolean fixLast = topology != Topology.BOUNDED && rest != 0;
+        boolean changed = false;
+        long delta = 0;
+
+        //two rows at a time, p is the upper one on the board
+        for (int p = 0; p < height; p += 2)
+        {
+            boolean second = p + 1 < height;
+            int r0 = p * stride + 1; //the row above, in the guard row for p = 0
+            int r1 = r0 + stride;
+            int r2 = r1 + stride;
+            long[] c3 = second ? c : noRow;
+            int r3 = second ? r2 + stride : 1;
+
+            for (int w = 0; w < words; w++)
+            {
+                boolean patch = fixLast && w == words - 1;
+                //every row as 66 bits: cell -1 of the word in bit 0 of lo, cells 63 and 64 in hi
+                long cur0 = c[r0 + w];
+                long cur1 = c[r1 + w];
+                long cur2 = c[r2 + w];
+                long cur3 = c3[r3 + w];
+                if (patch)
+                {
+                    cur0 |= (c[r0] & 1) << rest;
+                    cur1 |= (c[r1] & 1) << rest;
+                    cur2 |= (c[r2] & 1) << rest;
+                    cur3 |= (c3[r3] & 1) << rest;
+                }
+                long lo0 = (cur0 << 1) | (c[r0 + w - 1] >>> 63);
+                long lo1 = (cur1 << 1) | (c[r1 + w - 1] >>> 63);
+                long lo2 = (cur2 << 1) | (c[r2 + w - 1] >>> 63);
+                long lo3 = (cur3 << 1) | (c3[r3 + w - 1] >>> 63);
+
+                long upper = 0;
+                long lower = 0;
+                for (int s = 0; s < 62; s += 2)
+                {
+                    int tile = table[(int)((lo0 >>> s) & 15)
+                                   | (int)((lo1 >>> s) & 15) << 4
+                                   | (int)((lo2 >>> s) & 15) << 8
+                                   | (int)((lo3 >>> s) & 15) << 12];
+                    upper |= (long)(tile & 3) << s;
+                    lower |= (long)((tile >>> 2) & 3) << s;
+                }
+                //the last tile of the word reaches into the next one
+                int tile = table[window(lo0, cur0, c[r0 + w + 1])
+                               | window(lo1, cur1, c[r1 + w + 1]) << 4
+                               | window(lo2, cur2, c[r2 + w + 1]) << 8
+                               | window(lo3, cur3, c3[r3 + w + 1]) << 12];
+                upper |= (long)(tile & 3) << 62;
+                lower |= (long)((tile >>> 2) & 3) << 62;
+
+                if (w == words - 1)
+                {
+                    upper &= lastMask; //keep the bits right of the board dead
+                    lower &= lastMask;
+                }
+                int i = r1 + w;
+                if (upper != c[i])
+                {
+                    changed = true;
+                    delta += Long.bitCount(upper) - Long.bitCount(c[i]);
+                    if (flipped != null) record(flipped, p + 1, w, upper ^ c[i]);
+                }
+                n[i] = upper;
+                if (!second) continue; //that would be the guard row
+                i = r2 + w;
+                if (lower != c[i])
+                {
+                    changed = true;
+                    delta += Long.bitCount(lower) - Long.bitCount(c[i]);
+                    if (flipped != null) record(flipped, p + 2, w, lower ^ c[i]);
+                }
+                n[i] = lower;
+            }
+        }
+        return finishGeneration(changed, delta);
+    }
+
+    //cells 61 to 64 of a row: 61 and 62 from lo, 63 from the word itself, 64 from the next word
+    private static int window(long lo, long cur, long following) {
+        return (int)(lo >>> 62) | (int)(cur >>> 63) << 2 | (int)(following & 1) << 3;
+    }
+}
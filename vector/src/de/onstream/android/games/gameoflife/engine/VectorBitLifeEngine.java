@@ -0,0 +1,202 @@
+/***
+* This program implements a very basic version of John Horton
+* Conway's cellular automaton called "game of life" also known
+* as "Conway's Game of Life". If you want to know more about it
+* you should check out the Wikipedia page:
+*
+* http://en.wikipedia.org/wiki/Conway's_Game_of_Life
+*
+* The basic rules are as follows (quoted from above's article):
+*
+* 1. Any live cell with fewer than two live neighbours dies, as if caused by underpopulation.
+* 2. Any live cell with more than three live neighbours dies, as if by overcrowding.
+* 3. Any live cell with two or three live neighbours lives on to the next generation.
+* 4. Any dead cell with exactly three live neighbours becomes a live cell.
+*
+* Have fun with the code.
+*
+* Daniel Gollub, 2010-06-11
+*
+* Copyright (C) 2010 Daniel Gollub, daniel.gollub@onstreamtv.de
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package de.onstream.android.games.gameoflife.engine;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The bitboard with the busy parts of the board calculated on SIMD lanes
+ * through the Vector API: the adder network of BitLifeEngine.evolve() runs
+ * on as many words at once as the CPU's vectors hold, 4 with AVX2, 8 with
+ * AVX-512. The neighbouring words that feed the shifted-in edge bits are
+ * simply loaded from one word further left or right.
+ *
+ * Needs a desktop JVM started with --add-modules jdk.incubator.vector, so
+ * it lives in its own source root and is only ever loaded through
+ * VectorSupport, which falls back to the plain bitboard elsewhere.
+ *
+ * With -Dgameoflife.vector.verify=true every vector result is compared to
+ * the scalar one and an IllegalStateException is thrown on the first
+ * difference, which is meant for trying out new hardware or JVMs.
+ */
+public class VectorBitLifeEngine extends BitLifeEngine
+{
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    private static final boolean VERIFY = Boolean.getBoolean("gameoflife.vector.verify");
+
+    public VectorBitLifeEngine(int width, int height) {
+        super(width, height);
+    }
+
+    @Override
+    protected void evolveWords(long[] c, long[] n, int i, int count, Rule r) {
+        int end = i + count;
+        int vectorEnd = i + count - count % LANES;
+        if (r == Rule.CONWAY)
+        {
+            //written out in here, the vectors only stay in registers if C2 sees all of it at once
+            final int s = stride;
+            for (; i < vectorEnd; i += LANES)
+            {
+                LongVector up   = LongVector.fromArray(SPECIES, c, i - s);
+                LongVector mid  = LongVector.fromArray(SPECIES, c, i);
+                LongVector down = LongVector.fromArray(SPECIES, c, i + s);
+
+                LongVector nw = up.lanewise(VectorOperators.LSHL, 1)
+                        .or(LongVector.fromArray(SPECIES, c, i - s - 1).lanewise(VectorOperators.LSHR, 63));
+                LongVector ne = up.lanewise(VectorOperators.LSHR, 1)
+                        .or(LongVector.fromArray(SPECIES, c, i - s + 1).lanewise(VectorOperators.LSHL, 63));
+                LongVector w  = mid.lanewise(VectorOperators.LSHL, 1)
+                        .or(LongVector.fromArray(SPECIES, c, i - 1).lanewise(VectorOperators.LSHR, 63));
+                LongVector e  = mid.lanewise(VectorOperators.LSHR, 1)
+                        .or(LongVector.fromArray(SPECIES, c, i + 1).lanewise(VectorOperators.LSHL, 63));
+                LongVector sw = down.lanewise(VectorOperators.LSHL, 1)
+                        .or(LongVector.fromArray(SPECIES, c, i + s - 1).lanewise(VectorOperators.LSHR, 63));
+                LongVector se = down.lanewise(VectorOperators.LSHR, 1)
+                        .or(LongVector.fromArray(SPECIES, c, i + s + 1).lanewise(VectorOperators.LSHL, 63));
+
+                //the adder network of BitLifeEngine.evolve()
+                LongVector upSum    = nw.lanewise(VectorOperators.XOR, up).lanewise(VectorOperators.XOR, ne);
+                LongVector upCarry  = nw.and(up).or(ne.and(nw.lanewise(VectorOperators.XOR, up)));
+                LongVector midSum   = w.lanewise(VectorOperators.XOR, e);
+                LongVector midCarry = w.and(e);
+                LongVector dnSum    = sw.lanewise(VectorOperators.XOR, down).lanewise(VectorOperators.XOR, se);
+                LongVector dnCarry  = sw.and(down).or(se.and(sw.lanewise(VectorOperators.XOR, down)));
+
+                LongVector ones      = upSum.lanewise(VectorOperators.XOR, midSum).lanewise(VectorOperators.XOR, dnSum);
+                LongVector onesCarry = upSum.and(midSum).or(dnSum.and(upSum.lanewise(VectorOperators.XOR, midSum)));
+
+                LongVector x1 = upCarry.lanewise(VectorOperators.XOR, midCarry);
+                LongVector a1 = upCarry.and(midCarry);
+                LongVector x2 = dnCarry.lanewise(VectorOperators.XOR, onesCarry);
+                LongVector a2 = dnCarry.and(onesCarry);
+                LongVector twoOrThree = x1.lanewise(VectorOperators.XOR, x2).and(a1.or(a2).not());
+
+                twoOrThree.and(ones.or(mid)).intoArray(n, i);
+                if (VERIFY)
+                    verify(c, n, i, r);
+            }
+        }
+        else
+        {
+            for (; i < vectorEnd; i += LANES)
+            {
+                evolve(c, i, r).intoArray(n, i);
+                if (VERIFY)
+                    verify(c, n, i, r);
+            }
+        }
+        //the rest doesn't fill a whole vector
+        super.evolveWords(c, n, i, end - i, r);
+    }
+
+    private void verify(long[] c, long[] n, int i, Rule r) {
+        for (int k = i; k < i + LANES; k++)
+        {
+            long expected = r == Rule.CONWAY ? evolve(c, k, stride) : evolve(c, k, stride, r);
+            if (n[k] != expected)
+                throw new IllegalStateException("word " + k + ": vector " + Long.toHexString(n[k])
+                                                + ", scalar " + Long.toHexString(expected));
+        }
+    }
+
+    //any rule, with the count put together as four bit planes
+    private LongVector evolve(long[] c, int i, Rule r) {
+        int s = stride;
+        LongVector up   = LongVector.fromArray(SPECIES, c, i - s);
+        LongVector mid  = LongVector.fromArray(SPECIES, c, i);
+        LongVector down = LongVector.fromArray(SPECIES, c, i + s);
+
+        LongVector nw = left(up, c, i - s);
+        LongVector ne = right(up, c, i - s);
+        LongVector w  = left(mid, c, i);
+        LongVector e  = right(mid, c, i);
+        LongVector sw = left(down, c, i + s);
+        LongVector se = right(down, c, i + s);
+
+        LongVector upSum    = nw.lanewise(VectorOperators.XOR, up).lanewise(VectorOperators.XOR, ne);
+        LongVector upCarry  = nw.and(up).or(ne.and(nw.lanewise(VectorOperators.XOR, up)));
+        LongVector midSum   = w.lanewise(VectorOperators.XOR, e);
+        LongVector midCarry = w.and(e);
+        LongVector dnSum    = sw.lanewise(VectorOperators.XOR, down).lanewise(VectorOperators.XOR, se);
+        LongVector dnCarry  = sw.and(down).or(se.and(sw.lanewise(VectorOperators.XOR, down)));
+
+        LongVector b0        = upSum.lanewise(VectorOperators.XOR, midSum).lanewise(VectorOperators.XOR, dnSum);
+        LongVector onesCarry = upSum.and(midSum).or(dnSum.and(upSum.lanewise(VectorOperators.XOR, midSum)));
+
+        LongVector x1 = upCarry.lanewise(VectorOperators.XOR, midCarry);
+        LongVector a1 = upCarry.and(midCarry);
+        LongVector x2 = dnCarry.lanewise(VectorOperators.XOR, onesCarry);
+        LongVector a2 = dnCarry.and(onesCarry);
+        LongVector carry = x1.and(x2);
+        LongVector b1 = x1.lanewise(VectorOperators.XOR, x2);
+        LongVector b2 = a1.lanewise(VectorOperators.XOR, a2).lanewise(VectorOperators.XOR, carry);
+        LongVector b3 = a1.and(a2);
+
+        final int[] counts = r.counts;
+        LongVector born = LongVector.zero(SPECIES);
+        LongVector survive = born;
+        for (int k = 0; k < counts.length; k++)
+        {
+            int n = counts[k];
+            //all ones where the count equals n: b ^ ~bit of n is set wherever the plane matches that bit
+            LongVector match = b0.lanewise(VectorOperators.XOR, ~(long)-(n & 1))
+                          .and(b1.lanewise(VectorOperators.XOR, ~(long)-((n >>> 1) & 1)))
+                          .and(b2.lanewise(VectorOperators.XOR, ~(long)-((n >>> 2) & 1)))
+                          .and(b3.lanewise(VectorOperators.XOR, ~(long)-(n >>> 3)));
+            born    = born.or(match.and(r.bornSelect[k]));
+            survive = survive.or(match.and(r.surviveSelect[k]));
+        }
+        return born.and(mid.not()).or(survive.and(mid));
+    }
+
+    //the row shifted by one cell to the right, the top bit of the word on the left comes in
+    private static LongVector left(LongVector row, long[] c, int i) {
+        LongVector before = LongVector.fromArray(SPECIES, c, i - 1);
+        return row.lanewise(VectorOperators.LSHL, 1).or(before.lanewise(VectorOperators.LSHR, 63));
+    }
+
+    //and to the left, the lowest bit of the word on the right comes in
+    private static LongVector right(LongVector row, long[] c, int i) {
+        LongVector after = LongVector.fromArray(SPECIES, c, i + 1);
+        return row.lanewise(VectorOperators.LSHR, 1).or(after.lanewise(VectorOperators.LSHL, 63));
+    }
+}